@@ -0,0 +1,72 @@
+package ir.momeni.slyther.audit.service;
+
+import ir.momeni.slyther.config.AppProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Redaction applied to every audit record (request summary + error body).
+ * <p>
+ * {@code legacy*} replays the previous three {@code String.replaceAll} calls for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RedactorBenchmark {
+
+    private Redactor redactor;
+    private String summary;
+    private String errorBody;
+    private String secretBody;
+    private String devTokenBody;
+
+    @Setup
+    public void setup() {
+        redactor = new Redactor(new AppProperties());
+        summary = "GET /api/test/user -> 200";
+        errorBody = "{\"timestamp\":\"2025-01-01T00:00:00Z\",\"status\":401,\"error\":\"Bad credentials\","
+                + "\"message\":\"Bad credentials\",\"path\":\"/api/auth/login\"}";
+        secretBody = "{\"timestamp\":\"2025-01-01T00:00:00Z\",\"status\":401,\"error\":\"Bad credentials\","
+                + "\"message\":\"Bad credentials\",\"path\":\"/api/auth/login\",\"password\":\"Secret123\"}";
+        devTokenBody = "{\"success\":true,\"token_dev_mode_only\":\"prt_Vq3kL0m9xYzT2bN8cD4eF6gH1iJ5kL7mN9oP0qR2sT4\"}";
+    }
+
+    @Benchmark
+    public String summary() {
+        return redactor.redact(summary);
+    }
+
+    @Benchmark
+    public String errorBody() {
+        return redactor.redact(errorBody);
+    }
+
+    @Benchmark
+    public String errorBodyWithSecret() {
+        return redactor.redact(secretBody);
+    }
+
+    @Benchmark
+    public String devTokenBody() {
+        return redactor.redact(devTokenBody);
+    }
+
+    @Benchmark
+    public String legacySummary() {
+        return legacyMask(summary);
+    }
+
+    @Benchmark
+    public String legacyErrorBodyWithSecret() {
+        return legacyMask(secretBody);
+    }
+
+    private static String legacyMask(String msg) {
+        msg = msg.replaceAll("(?i)password=\\S+", "password=***");
+        msg = msg.replaceAll("(?i)\"password\"\\s*:\\s*\"[^\"]*\"", "\"password\":\"***\"");
+        msg = msg.replaceAll("(?i)Authorization:\\s*Bearer\\s+\\S+", "Authorization: Bearer ***");
+        return msg;
+    }
+}
@@ -0,0 +1,33 @@
+package ir.momeni.slyther.common.util;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * SHA-256 hashing of refresh/reset tokens as done on every login, refresh and reset.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HashUtilsBenchmark {
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        token = UUID.randomUUID() + "-" + UUID.randomUUID();
+    }
+
+    @Benchmark
+    public byte[] sha256() {
+        return HashUtils.sha256(token);
+    }
+
+    @Benchmark
+    public String sha256Hex() {
+        return HashUtils.sha256Hex(token);
+    }
+}
@@ -0,0 +1,45 @@
+package ir.momeni.slyther.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ir.momeni.slyther.security.OffloadedPasswordEncoder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Cost of the production password encoder from {@link CryptoConfig} (hash on register/reset,
+ * verify on every login), including the hand-off to the password executor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class PasswordEncoderBenchmark {
+
+    private PasswordEncoder encoder;
+    private String hash;
+
+    @Setup
+    public void setup() {
+        encoder = new CryptoConfig().passwordEncoder(new AppProperties(), new SimpleMeterRegistry());
+        hash = encoder.encode("Password123");
+    }
+
+    @TearDown
+    public void tearDown() {
+        ((OffloadedPasswordEncoder) encoder).destroy();
+    }
+
+    @Benchmark
+    public String encode() {
+        return encoder.encode("Password123");
+    }
+
+    @Benchmark
+    public boolean matches() {
+        return encoder.matches("Password123", hash);
+    }
+}
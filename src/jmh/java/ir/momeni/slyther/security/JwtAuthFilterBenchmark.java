@@ -0,0 +1,45 @@
+package ir.momeni.slyther.security;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Path/method pre-check that runs for every request entering the API security chain.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JwtAuthFilterBenchmark {
+
+    private JwtAuthFilter filter;
+    private MockHttpServletRequest apiRequest;
+    private MockHttpServletRequest skippedRequest;
+    private MockHttpServletRequest preflight;
+
+    @Setup
+    public void setup() {
+        // shouldNotFilter only looks at the request; collaborators are not needed
+        filter = new JwtAuthFilter(null, null, null, null, null);
+        apiRequest = new MockHttpServletRequest("GET", "/api/test/user");
+        skippedRequest = new MockHttpServletRequest("GET", "/swagger-ui/index.html");
+        preflight = new MockHttpServletRequest("OPTIONS", "/api/test/user");
+    }
+
+    @Benchmark
+    public boolean apiPath() {
+        return filter.shouldNotFilter(apiRequest);
+    }
+
+    @Benchmark
+    public boolean skippedPath() {
+        return filter.shouldNotFilter(skippedRequest);
+    }
+
+    @Benchmark
+    public boolean preflight() {
+        return filter.shouldNotFilter(preflight);
+    }
+}
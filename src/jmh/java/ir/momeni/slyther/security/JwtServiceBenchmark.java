@@ -0,0 +1,66 @@
+package ir.momeni.slyther.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import ir.momeni.slyther.config.AppProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.ECGenParameterSpec;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Access token minting and verification, per signature algorithm and with/without
+ * the verified-token cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JwtServiceBenchmark {
+
+    @Param({"HS256", "ES256"})
+    public String algorithm;
+
+    @Param({"false", "true"})
+    public boolean cache;
+
+    private JwtService jwtService;
+    private Map<String, Object> claims;
+    private String token;
+
+    @Setup
+    public void setup() throws Exception {
+        AppProperties props = new AppProperties();
+        var jwt = props.getSecurity().getJwt();
+        jwt.setIssuer("slyther");
+        jwt.setSecret("BENCHMARK_SECRET_BENCHMARK_SECRET_BENCHMARK_SECRET_0123456789");
+        jwt.setAccessExpMins(15);
+        jwt.setAlgorithm(algorithm);
+        jwt.getCache().setEnabled(cache);
+
+        KeyPairGenerator gen = KeyPairGenerator.getInstance("EC");
+        gen.initialize(new ECGenParameterSpec("secp256r1"));
+        KeyPair kp = gen.generateKeyPair();
+        JwtKey key = new JwtKey("bench", kp.getPrivate(), kp.getPublic(), Instant.now());
+        JwtKeyRing ring = new JwtKeyRing();
+        ring.install(key, List.of(key));
+
+        jwtService = new JwtService(props, ring, new TokenMinter(), new SimpleMeterRegistry());
+        claims = Map.of(TokenClaims.USER_ID, 42L, TokenClaims.ROLES, List.of("USER", "ADMIN"));
+        token = jwtService.generateAccessToken("bench-user", claims);
+    }
+
+    @Benchmark
+    public String generateAccessToken() {
+        return jwtService.generateAccessToken("bench-user", claims);
+    }
+
+    @Benchmark
+    public Object parse() {
+        return jwtService.parse(token).getBody();
+    }
+}
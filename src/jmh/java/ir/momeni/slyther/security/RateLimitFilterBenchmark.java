@@ -0,0 +1,63 @@
+package ir.momeni.slyther.security;
+
+import ir.momeni.slyther.config.AppProperties;
+import ir.momeni.slyther.ratelimit.service.MemoryRateLimitStore;
+import ir.momeni.slyther.ratelimit.service.RateLimitService;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Rate limiter under contention: 8 threads hitting POST /api/auth/login either from one
+ * shared client IP (same key, mostly rejected), from one IP per thread (distinct keys), or from a
+ * fresh IP per request (scanner-style key churn against the bounded table).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class RateLimitFilterBenchmark {
+
+    private static final FilterChain NOOP_CHAIN = (req, res) -> { };
+
+    @Param({"shared", "distinct", "churn"})
+    public String clients;
+
+    private RateLimitFilter filter;
+    private final AtomicInteger threadIds = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Client {
+        MockHttpServletRequest request;
+        MockHttpServletResponse response;
+        int id;
+        int seq;
+
+        @Setup
+        public void setup(RateLimitFilterBenchmark bench) {
+            id = bench.threadIds.incrementAndGet();
+            request = new MockHttpServletRequest("POST", "/api/auth/login");
+            request.setRemoteAddr("shared".equals(bench.clients) ? "10.0.0.1" : "10.0.0." + id);
+            response = new MockHttpServletResponse();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        AppProperties props = new AppProperties();
+        filter = new RateLimitFilter(new RateLimitService(props, new MemoryRateLimitStore(props), null));
+    }
+
+    @Benchmark
+    public int doFilter(Client c) throws Exception {
+        c.response.reset();
+        if ("churn".equals(clients)) c.request.setRemoteAddr("10." + c.id + "." + (++c.seq >>> 8 & 0xff) + "." + (c.seq & 0xff));
+        filter.doFilterInternal(c.request, c.response, NOOP_CHAIN);
+        return c.response.getStatus();
+    }
+}
@@ -0,0 +1,29 @@
+package ir.momeni.slyther.security;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Refresh-token minting under concurrent logins: per-thread DRBG vs the former double UUID.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(8)
+public class TokenMinterBenchmark {
+
+    private final TokenMinter minter = new TokenMinter();
+
+    @Benchmark
+    public String mint() {
+        return minter.mint(TokenMinter.Kind.REFRESH);
+    }
+
+    @Benchmark
+    public String doubleUuid() {
+        return UUID.randomUUID() + "-" + UUID.randomUUID();
+    }
+}
@@ -0,0 +1,58 @@
+package db.migration;
+
+import ir.momeni.slyther.common.BaseEntity;
+import ir.momeni.slyther.common.db.DatabaseVendor;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+
+/**
+ * Creates the pooled id sequence used by every entity table (replaces AUTO_INCREMENT/IDENTITY
+ * id generation, which prevents insert batching).
+ * <p>
+ * Written in Java because the start value depends on existing data: it begins past the
+ * highest id in any entity table plus one block, so no reserved block overlaps an existing row.
+ * {@code CREATE SEQUENCE IF NOT EXISTS ... START WITH ... INCREMENT BY ...} is the same on
+ * MariaDB (10.3+) and PostgreSQL.
+ * <p>
+ * The AUTO_INCREMENT/IDENTITY column attributes are left in place; explicit ids are accepted.
+ */
+public class V10__CreateEntityIdSequence extends BaseJavaMigration {
+
+    /** Tables whose entity extends {@link BaseEntity}. */
+    private static final List<String> TABLES = List.of(
+            "users", "roles", "sessions", "action_logs", "password_reset_tokens",
+            "jwt_signing_keys", "revoked_tokens");
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection c = context.getConnection();
+        DatabaseVendor.of(c);   // fail fast on unsupported databases
+
+        long maxId = 0;
+        try (Statement st = c.createStatement()) {
+            for (String table : TABLES) {
+                if (!tableExists(c, table)) continue;
+                try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+                    if (rs.next()) maxId = Math.max(maxId, rs.getLong(1));
+                }
+            }
+            long start = maxId + BaseEntity.ID_BLOCK + 1;
+            st.execute("CREATE SEQUENCE IF NOT EXISTS " + BaseEntity.ID_SEQUENCE
+                    + " START WITH " + start + " INCREMENT BY " + BaseEntity.ID_BLOCK);
+        }
+    }
+
+
+    private static boolean tableExists(Connection c, String table) throws SQLException {
+        try (ResultSet rs = c.getMetaData().getTables(c.getCatalog(), null, table, new String[]{"TABLE"})) {
+            return rs.next();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package db.migration;
+
+import ir.momeni.slyther.common.db.DatabaseVendor;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+
+/**
+ * Turns {@code action_logs} into a table range-partitioned by {@code created_at}.
+ * <p>
+ * Resulting layout (the {@code AuditPartitionMaintainer} job adds dated partitions from here on):
+ * - MariaDB: {@code PARTITION BY RANGE COLUMNS(created_at)} with {@code p_archive}
+ *   (all existing rows, up to the start of the next UTC month) and {@code p_future} (MAXVALUE).
+ * - PostgreSQL: declarative partitioning; the existing table is attached as
+ *   {@code action_logs_archive} and a DEFAULT partition {@code action_logs_future} catches the rest.
+ * <p>
+ * Partitioned tables need the partition column in every unique key, so the primary key
+ * becomes {@code (id, created_at)} and {@code created_at} becomes NOT NULL.
+ * Already partitioned tables are left alone; on PostgreSQL a missing table is skipped.
+ */
+public class V11__PartitionActionLogs extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection c = context.getConnection();
+        // Archive ends at the next UTC month, so it holds every existing row (ATTACH checks that on PG)
+        String boundary = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1).plusMonths(1) + " 00:00:00";
+        switch (DatabaseVendor.of(c)) {
+            case MARIADB -> mariadb(c, boundary);
+            case POSTGRESQL -> postgres(c, boundary);
+        }
+    }
+
+
+    private static void mariadb(Connection c, String boundary) throws SQLException {
+        if (exists(c, "SELECT 1 FROM INFORMATION_SCHEMA.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() "
+                + "AND TABLE_NAME = 'action_logs' AND PARTITION_NAME IS NOT NULL")) return;
+        try (Statement st = c.createStatement()) {
+            st.execute("UPDATE action_logs SET created_at = COALESCE(updated_at, UTC_TIMESTAMP(6)) WHERE created_at IS NULL");
+            st.execute("ALTER TABLE action_logs MODIFY created_at DATETIME(6) NOT NULL, "
+                    + "DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_at)");
+            st.execute("ALTER TABLE action_logs PARTITION BY RANGE COLUMNS(created_at) ("
+                    + "PARTITION p_archive VALUES LESS THAN ('" + boundary + "'), "
+                    + "PARTITION p_future VALUES LESS THAN (MAXVALUE))");
+        }
+    }
+
+
+    private static void postgres(Connection c, String boundary) throws SQLException {
+        if (!exists(c, "SELECT 1 FROM pg_class WHERE relname = 'action_logs' AND relkind = 'r'")) return;
+        try (Statement st = c.createStatement()) {
+            st.execute("UPDATE action_logs SET created_at = COALESCE(updated_at, now()) WHERE created_at IS NULL");
+            st.execute("ALTER TABLE action_logs ALTER COLUMN created_at SET NOT NULL");
+            st.execute("ALTER TABLE action_logs RENAME TO action_logs_archive");
+            st.execute("ALTER INDEX IF EXISTS idx_log_path RENAME TO idx_log_path_archive");
+            st.execute("ALTER INDEX IF EXISTS idx_log_username RENAME TO idx_log_username_archive");
+            st.execute("CREATE TABLE action_logs (LIKE action_logs_archive INCLUDING DEFAULTS) PARTITION BY RANGE (created_at)");
+            st.execute("ALTER TABLE action_logs ADD PRIMARY KEY (id, created_at)");
+            st.execute("CREATE INDEX idx_log_path ON action_logs (path)");
+            st.execute("CREATE INDEX idx_log_username ON action_logs (username)");
+            st.execute("ALTER TABLE action_logs ATTACH PARTITION action_logs_archive "
+                    + "FOR VALUES FROM (MINVALUE) TO ('" + boundary + "')");
+            st.execute("CREATE TABLE action_logs_future PARTITION OF action_logs DEFAULT");
+        }
+    }
+
+
+    private static boolean exists(Connection c, String sql) throws SQLException {
+        try (Statement st = c.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            return rs.next();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package db.migration;
+
+import ir.momeni.slyther.common.db.DatabaseVendor;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+
+/**
+ * Composite indexes for keyset pagination of {@code action_logs} on {@code (created_at, id)}.
+ * <p>
+ * Each filter column leads its own index, followed by the sort key, so a filtered page is a
+ * single index range scan in {@code ORDER BY created_at DESC, id DESC} order:
+ * - {@code idx_log_created}: (created_at, id), unfiltered and time-range-only queries
+ * - {@code idx_log_user_created}: (username, created_at, id)
+ * - {@code idx_log_path_created}: (path, created_at, id), exact paths and path prefixes
+ * - {@code idx_log_status_created}: (status, created_at, id)
+ * <p>
+ * The single-column {@code idx_log_path} / {@code idx_log_username} are prefixes of the new
+ * indexes and are dropped. {@code CREATE INDEX IF NOT EXISTS} is the same on MariaDB and
+ * PostgreSQL (where it cascades to every partition); only DROP INDEX differs.
+ */
+public class V12__ActionLogKeysetIndexes extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection c = context.getConnection();
+        DatabaseVendor vendor = DatabaseVendor.of(c);
+        try (Statement st = c.createStatement()) {
+            st.execute("CREATE INDEX IF NOT EXISTS idx_log_created ON action_logs (created_at, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_log_user_created ON action_logs (username, created_at, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_log_path_created ON action_logs (path, created_at, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_log_status_created ON action_logs (status, created_at, id)");
+            for (String index : new String[]{"idx_log_path", "idx_log_username"}) {
+                switch (vendor) {
+                    case MARIADB -> st.execute("DROP INDEX IF EXISTS " + index + " ON action_logs");
+                    case POSTGRESQL -> st.execute("DROP INDEX IF EXISTS " + index);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package db.migration;
+
+import ir.momeni.slyther.common.db.DatabaseVendor;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+
+/**
+ * Per-minute counters of audited requests that are not stored as individual
+ * {@code action_logs} rows (successful idempotent requests, see {@code AuditRollup}).
+ * <p>
+ * One row per (minute, method, path template, status, username); anonymous requests use
+ * an empty username so it can be part of the primary key. The counter is added to with a
+ * vendor-specific upsert, so several nodes can flush the same key.
+ */
+public class V13__CreateActionLogRollups extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection c = context.getConnection();
+        String timestamp = switch (DatabaseVendor.of(c)) {
+            case MARIADB -> "DATETIME";
+            case POSTGRESQL -> "TIMESTAMP";
+        };
+        try (Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS action_log_rollups ("
+                    + "minute_start " + timestamp + " NOT NULL, "
+                    + "method VARCHAR(16) NOT NULL, "
+                    + "path_template VARCHAR(255) NOT NULL, "
+                    + "status INT NOT NULL, "
+                    + "username VARCHAR(150) NOT NULL, "
+                    + "request_count BIGINT NOT NULL, "
+                    + "PRIMARY KEY (minute_start, method, path_template, status, username))");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_alr_user_minute ON action_log_rollups (username, minute_start)");
+        }
+    }
+}
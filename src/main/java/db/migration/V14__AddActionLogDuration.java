@@ -0,0 +1,27 @@
+package db.migration;
+
+import ir.momeni.slyther.common.db.DatabaseVendor;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+
+/**
+ * Adds {@code action_logs.duration_micros}: handling time of the request in microseconds
+ * (NULL for non-HTTP records and rows written before this migration).
+ * {@code ADD COLUMN IF NOT EXISTS} is the same on MariaDB and PostgreSQL (where it
+ * propagates to every partition).
+ */
+public class V14__AddActionLogDuration extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection c = context.getConnection();
+        DatabaseVendor.of(c);   // fail fast on unsupported databases
+        try (Statement st = c.createStatement()) {
+            st.execute("ALTER TABLE action_logs ADD COLUMN IF NOT EXISTS duration_micros BIGINT NULL");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package db.migration;
+
+import ir.momeni.slyther.common.db.DatabaseVendor;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+
+/**
+ * Leader locks for scheduled jobs that must run on one node at a time (see {@code SchedulerLock}).
+ * <p>
+ * One row per job name; a node holds the lock while {@code locked_until} (UTC) is in the
+ * future. Rows are created on first use and never deleted.
+ */
+public class V15__CreateSchedulerLocks extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection c = context.getConnection();
+        String timestamp = switch (DatabaseVendor.of(c)) {
+            case MARIADB -> "DATETIME(6)";
+            case POSTGRESQL -> "TIMESTAMP(6)";
+        };
+        try (Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS scheduler_locks ("
+                    + "name VARCHAR(64) NOT NULL PRIMARY KEY, "
+                    + "locked_until " + timestamp + " NOT NULL, "
+                    + "locked_at " + timestamp + " NOT NULL, "
+                    + "locked_by VARCHAR(255) NOT NULL)");
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package db.migration;
+
+import ir.momeni.slyther.common.db.DatabaseVendor;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.Statement;
+
+
+/**
+ * Per-user session lookups and the access-token epoch.
+ * <p>
+ * - {@code idx_session_user_active}: (user_id, revoked, expires_at), so listing or revoking a
+ *   user's active sessions is one index range scan instead of a scan of all their sessions
+ * - {@code users.token_epoch}: bumped by "log out everywhere"; access tokens carry the epoch
+ *   they were issued under and older ones are rejected
+ * - {@code idx_user_updated}: (updated_at), for the incremental epoch sync between nodes
+ * <p>
+ * The statements are the same on MariaDB and PostgreSQL.
+ */
+public class V16__SessionUserIndexAndTokenEpoch extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        Connection c = context.getConnection();
+        DatabaseVendor.of(c);   // fail fast on unsupported databases
+        try (Statement st = c.createStatement()) {
+            st.execute("CREATE INDEX IF NOT EXISTS idx_session_user_active ON sessions (user_id, revoked, expires_at)");
+            st.execute("ALTER TABLE users ADD COLUMN IF NOT EXISTS token_epoch BIGINT NOT NULL DEFAULT 0");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_user_updated ON users (updated_at)");
+        }
+    }
+}
@@ -4,6 +4,7 @@ import ir.momeni.slyther.config.AppProperties;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 
 /**
@@ -13,9 +14,11 @@ import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
  * and property support. {@link ConfigurationPropertiesScan} registers classes
  * annotated with {@code @ConfigurationProperties} (e.g., {@link AppProperties})
  * so their typed configuration is bound from application properties.
+ * {@link EnableScheduling} activates background jobs (e.g., JWT key rotation).
  */
 @SpringBootApplication
 @ConfigurationPropertiesScan(basePackageClasses = AppProperties.class)
+@EnableScheduling
 public class SlytherApplication {
 
 
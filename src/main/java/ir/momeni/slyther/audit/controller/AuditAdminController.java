@@ -0,0 +1,69 @@
+package ir.momeni.slyther.audit.controller;
+
+import ir.momeni.slyther.audit.service.AuditQueryService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+
+
+/**
+ * Admin read access to the audit log.
+ * <p>
+ * Endpoints (ROLE_ADMIN):
+ * - GET /api/admin/audit/logs: one page, newest first; pass {@code nextCursor} back as {@code cursor}
+ * - GET /api/admin/audit/logs/export: every matching row, oldest first, as NDJSON (streamed)
+ * <p>
+ * Filters (all optional): username, path (exact, or prefix with {@code /**}), status, success,
+ * from (inclusive) and to (exclusive) as ISO-8601 instants.
+ */
+@RestController
+@RequestMapping("/api/admin/audit")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class AuditAdminController {
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final AuditQueryService queries;
+
+
+    /**
+     * @return e.g. {"items":[{"id":1201,"createdAt":"2025-01-01T10:00:00Z",...}],"nextCursor":"AAYr..."}
+     */
+    @GetMapping("/logs")
+    public AuditQueryService.Page logs(@RequestParam(required = false) String username,
+                                       @RequestParam(required = false) String path,
+                                       @RequestParam(required = false) Integer status,
+                                       @RequestParam(required = false) Boolean success,
+                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                       @RequestParam(required = false) String cursor,
+                                       @RequestParam(required = false) Integer limit) {
+        return queries.search(new AuditQueryService.Filter(username, path, status, success, from, to), cursor, limit);
+    }
+
+
+    /**
+     * Streams the matching rows as {@code application/x-ndjson}, one JSON object per line.
+     */
+    @GetMapping("/logs/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(required = false) String username,
+                                                        @RequestParam(required = false) String path,
+                                                        @RequestParam(required = false) Integer status,
+                                                        @RequestParam(required = false) Boolean success,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to) {
+        var filter = new AuditQueryService.Filter(username, path, status, success, from, to);
+        return ResponseEntity.ok()
+                .contentType(NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"action-logs.ndjson\"")
+                .body(out -> queries.export(filter, out));
+    }
+}
@@ -0,0 +1,38 @@
+package ir.momeni.slyther.audit.controller;
+
+import ir.momeni.slyther.audit.service.TrafficStats;
+import ir.momeni.slyther.config.AppProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+
+/**
+ * Live traffic statistics from memory (see {@link TrafficStats}); no database access.
+ * <p>
+ * GET /api/admin/stats (ROLE_ADMIN): requests, error rate (4xx+5xx share) and latency
+ * percentiles in µs per route over the sliding window, plus the busiest users.
+ * {@code byStatusClass} holds the 1xx..5xx counts.
+ */
+@RestController
+@RequestMapping("/api/admin/stats")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class StatsAdminController {
+
+    private final TrafficStats stats;
+    private final AppProperties props;
+
+
+    /**
+     * @return e.g. {"windowSeconds":300,"requests":5120,"errorRate":0.02,"routes":[{"route":"POST /api/auth/login",...}],"topUsers":[...]}
+     */
+    @GetMapping
+    public TrafficStats.Report stats(@RequestParam(required = false) Integer topUsers) {
+        int top = topUsers != null ? Math.max(0, topUsers) : props.getAudit().getStats().getTopUsers();
+        return stats.report(top);
+    }
+}
@@ -16,10 +16,11 @@ import lombok.*;
 @Table(
         name = "action_logs",
         indexes = {
-                // Index on request path to speed up path-based searches/filters
-                @Index(name = "idx_log_path", columnList = "path"),
-                // Index on username to speed up per-user auditing
-                @Index(name = "idx_log_username", columnList = "username")
+                // Keyset pagination on (created_at, id), optionally narrowed by one filter column (V12)
+                @Index(name = "idx_log_created", columnList = "created_at, id"),
+                @Index(name = "idx_log_user_created", columnList = "username, created_at, id"),
+                @Index(name = "idx_log_path_created", columnList = "path, created_at, id"),
+                @Index(name = "idx_log_status_created", columnList = "status, created_at, id")
         }
 )
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
@@ -63,4 +64,7 @@ public class ActionLog extends BaseEntity {
     /** Optional free-form message/notes regarding the action. Max length 512. */
     @Column(length = 512)
     private String msg;
+
+    /** Time from the start of handling to completion, in microseconds (null for non-HTTP records). */
+    private Long durationMicros;
 }
@@ -1,7 +1,6 @@
 package ir.momeni.slyther.audit.service;
 
 import ir.momeni.slyther.audit.entity.ActionLog;
-import ir.momeni.slyther.audit.repository.ActionLogRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
@@ -10,19 +9,22 @@ import org.springframework.stereotype.Service;
  * Service class responsible for logging actions and events into the database.
  * Provides different methods for logging info, warnings, and errors
  * in both general and HTTP-specific contexts.
+ * <p>
+ * Records are handed to the {@link AuditPipeline} and written asynchronously in batches,
+ * so callers never wait for the audit table.
  */
 @Service
 @RequiredArgsConstructor
 public class ActionLogService {
-    private final ActionLogRepository repo;
+    private final AuditPipeline pipeline;
 
 
     /**
-     * Persists a given ActionLog entity to the database.
+     * Queues a given ActionLog entity for persisting to the database.
      *
      * @param log The ActionLog object to be saved.
      */
-    public void save(ActionLog log) { repo.save(log); }
+    public void save(ActionLog log) { pipeline.submit(log); }
 
 
     /**
@@ -35,7 +37,7 @@ public class ActionLogService {
      * @param ip       The IP address of the requester.
      */
     public void info(String msg, String path, String username, String ip) {
-        repo.save(ActionLog.builder()
+        pipeline.submit(ActionLog.builder()
                 .method("APP")            // Default method for non-HTTP logs
                 .status(0)               // Default status code
                 .msg(msg)
@@ -57,7 +59,7 @@ public class ActionLogService {
      * @param ip       The IP address of the requester.
      */
     public void warn(String msg, String path, String username, String ip) {
-        repo.save(ActionLog.builder()
+        pipeline.submit(ActionLog.builder()
                 .method("APP")
                 .status(0)
                 .msg(msg)
@@ -78,7 +80,7 @@ public class ActionLogService {
      * @param ip       The IP address of the requester.
      */
     public void error(String msg, Throwable ex, String path, String username, String ip) {
-        repo.save(ActionLog.builder()
+        pipeline.submit(ActionLog.builder()
                 .method("APP")
                 .status(0)
                 .msg(msg)
@@ -103,7 +105,7 @@ public class ActionLogService {
      * @param ip       The IP address of the client.
      */
     public void infoHttp(String msg, String method, int status, String path, String username, String ip) {
-        repo.save(ActionLog.builder()
+        pipeline.submit(ActionLog.builder()
                 .method(method != null ? method : "APP")
                 .status(status)
                 .msg(msg)
@@ -128,7 +130,7 @@ public class ActionLogService {
      * @param ip       The IP address of the client.
      */
     public void errorHttp(String msg, Throwable ex, String method, int status, String path, String username, String ip) {
-        repo.save(ActionLog.builder()
+        pipeline.submit(ActionLog.builder()
                 .method(method != null ? method : "APP")
                 .status(status)
                 .msg(msg)
@@ -0,0 +1,429 @@
+package ir.momeni.slyther.audit.service;
+
+import ir.momeni.slyther.audit.entity.ActionLog;
+import ir.momeni.slyther.config.AppProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+
+/**
+ * Crash-safe local write-ahead buffer for audit records: segmented, memory-mapped files.
+ * <p>
+ * Record layout (little-endian, padded to 8 bytes):
+ * - int length: written last with release semantics; 0 = not committed yet, -1 = end of segment
+ * - int CRC32C of the bytes after the header's first 8
+ * - long created_at (epoch micros), long duration_micros (-1 = null), int status, byte success
+ * - 7 strings (username, method, path, ip, user_agent, error_message, msg): u16 UTF-8 length
+ *   (0xFFFF = null) + bytes, each cut to its column length
+ * <p>
+ * Appending (request threads, lock-free): reserve space with one getAndAdd on the segment
+ * tail, write the body into the mapping, publish the length. The thread whose reservation
+ * crosses the end seals the segment with -1 and a new segment is mapped.
+ * <p>
+ * Reading (the single shipper thread of {@link AuditPipeline}): records are read in order
+ * from the checkpoint; {@link #commit()} persists the position (checkpoint file, atomic
+ * rename) and deletes fully shipped segments; {@link #rewind()} goes back to it after a
+ * failed insert. Segments left by an earlier process are replayed from the checkpoint at
+ * startup (a new process always starts a new segment).
+ * <p>
+ * Delivery is at-least-once: a crash between an insert and its checkpoint re-ships that batch.
+ * Data survives JVM crashes and database outages (pages live in the OS page cache); the
+ * segments are not fsynced per record, so power loss may cost the last unflushed pages.
+ * Disk use is bounded by {@code max-segments}; when full, {@link #append} refuses.
+ */
+@Slf4j
+@Component
+public class AuditJournal {
+
+    private static final int END = -1;
+    private static final int HEADER = 29;
+    private static final int NULL_STRING = 0xFFFF;
+    private static final String SUFFIX = ".journal";
+
+    /** Column lengths of the journaled strings, in record order. */
+    private static final int[] LIMITS = {150, 16, 255, 46, 255, 512, 512};
+
+    private static final VarHandle INT = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** One mapped segment file. */
+    private static final class Segment {
+        final long id;
+        final ByteBuffer buf;
+        final AtomicInteger tail = new AtomicInteger();
+
+        Segment(long id, ByteBuffer buf) {
+            this.id = id;
+            this.buf = buf;
+            buf.order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private final AppProperties.Audit.Journal cfg;
+    private final int capacity;
+    private volatile boolean enabled;
+    private Path dir;
+
+    /** Ids of the segment files on disk. */
+    private final ConcurrentSkipListSet<Long> segmentIds = new ConcurrentSkipListSet<>();
+
+    /** Segments mapped by this process (writable). */
+    private final Map<Long, Segment> live = new ConcurrentHashMap<>();
+    private volatile Segment active;
+    private long firstLive;
+
+    // Reader state (shipper thread only)
+    private Segment readSegment;
+    private int readOffset;
+    private long checkpointSegment;
+    private int checkpointOffset;
+
+    public AuditJournal(AppProperties props) {
+        this.cfg = props.getAudit().getJournal();
+        long size = Math.max(64 * 1024, Math.min(cfg.getSegmentSize().toBytes(), 1L << 30));
+        this.capacity = (int) (size & ~7L);
+        this.enabled = cfg.isEnabled();
+    }
+
+
+    /** Opens the directory, restores the checkpoint and maps a fresh segment for this process. */
+    @PostConstruct
+    void open() {
+        if (!enabled) return;
+        try {
+            dir = Path.of(cfg.getDir());
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                files.map(p -> p.getFileName().toString())
+                        .filter(n -> n.endsWith(SUFFIX))
+                        .forEach(n -> segmentIds.add(Long.parseLong(n.substring(0, n.length() - SUFFIX.length()))));
+            }
+            loadCheckpoint();
+            for (Long id : segmentIds.headSet(checkpointSegment)) delete(id);
+
+            firstLive = segmentIds.isEmpty() ? Math.max(1, checkpointSegment) : segmentIds.last() + 1;
+            if (segmentIds.isEmpty()) {
+                checkpointSegment = firstLive;
+                checkpointOffset = 0;
+            } else {
+                log.info("Audit journal: replaying {} unshipped segment(s) from {}", segmentIds.size(), dir);
+            }
+            active = map(firstLive);
+            rewind();
+        } catch (IOException | RuntimeException e) {
+            log.error("Audit journal disabled, cannot open {}: {}", cfg.getDir(), e.getMessage());
+            enabled = false;
+        }
+    }
+
+
+    /** @return whether records go through the journal */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * Appends a record.
+     *
+     * @return false if the journal is full ({@code max-segments} unshipped) or failed
+     */
+    public boolean append(ActionLog log, Instant createdAt) {
+        String[] fields = {log.getUsername(), log.getMethod(), log.getPath(), log.getIp(),
+                log.getUserAgent(), log.getErrorMessage(), log.getMsg()};
+        int size = HEADER;
+        for (int i = 0; i < fields.length; i++) size += 2 + utf8Length(fields[i], LIMITS[i]);
+        int padded = (size + 7) & ~7;
+
+        for (;;) {
+            Segment s = active;
+            if (s.tail.get() >= capacity) {
+                // Sealed, waiting for the next segment (keeps the tail from growing while the journal is full)
+                if (!roll(s)) return false;
+                continue;
+            }
+            int off = s.tail.getAndAdd(padded);
+            if (off + padded <= capacity) {
+                write(s.buf, off, size, createdAt, log, fields);
+                return true;
+            }
+            if (off < capacity) INT.setRelease(s.buf, off, END);     // this reservation crossed the end: seal
+            if (!roll(s)) return false;
+        }
+    }
+
+
+    /**
+     * Reads committed records after the current read position.
+     *
+     * @param out receives the records
+     * @param max maximum number of records to read
+     */
+    public void read(List<AuditPipeline.AuditRecord> out, int max) {
+        while (out.size() < max && readSegment != null) {
+            if (readOffset + 8 > readSegment.buf.capacity()) {
+                if (!advance()) return;
+                continue;
+            }
+            int len = (int) INT.getAcquire(readSegment.buf, readOffset);
+            boolean old = readSegment.id < firstLive;
+            if (len == END || (len == 0 && old)) {
+                if (!advance()) return;
+                continue;
+            }
+            if (len == 0) return;   // not committed yet
+
+            AuditPipeline.AuditRecord r = decode(readSegment.buf, readOffset, len);
+            if (r == null) {
+                // Torn record (crash while writing): nothing after it in this segment is trustworthy
+                log.warn("Audit journal: corrupt record in segment {} at {}, skipping the rest", readSegment.id, readOffset);
+                if (!advance()) return;
+                continue;
+            }
+            out.add(r);
+            readOffset += (len + 7) & ~7;
+        }
+    }
+
+
+    /** Marks everything read so far as shipped and deletes fully shipped segments. */
+    public void commit() {
+        if (readSegment == null) return;
+        checkpointSegment = readSegment.id;
+        checkpointOffset = readOffset;
+        try {
+            Path tmp = dir.resolve("checkpoint.tmp");
+            Files.write(tmp, ByteBuffer.allocate(12).putLong(checkpointSegment).putInt(checkpointOffset).array());
+            Files.move(tmp, dir.resolve("checkpoint"), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            log.warn("Audit journal checkpoint not saved (records may be shipped twice): {}", e.getMessage());
+            return;
+        }
+        for (Long id : segmentIds.headSet(checkpointSegment)) delete(id);
+    }
+
+
+    /** Moves the read position back to the last checkpoint. */
+    public void rewind() {
+        Long first = segmentIds.ceiling(checkpointSegment);
+        readSegment = first == null ? null : segment(first);
+        readOffset = first != null && first == checkpointSegment ? checkpointOffset : 0;
+    }
+
+
+    /** @return number of segment files not fully shipped */
+    public int segments() {
+        return segmentIds.size();
+    }
+
+
+    /** Flushes the mapped pages of this process to disk. */
+    @PreDestroy
+    void close() {
+        if (!enabled) return;
+        for (Segment s : live.values()) {
+            if (s.buf instanceof MappedByteBuffer m) m.force();
+        }
+    }
+
+
+    /** Maps the next segment unless the journal is at {@code max-segments}. */
+    private synchronized boolean roll(Segment full) {
+        if (active != full) return true;
+        if (segmentIds.size() >= cfg.getMaxSegments()) return false;
+        try {
+            active = map(full.id + 1);
+            return true;
+        } catch (IOException e) {
+            log.warn("Audit journal: cannot create segment {}: {}", full.id + 1, e.getMessage());
+            return false;
+        }
+    }
+
+
+    private Segment map(long id) throws IOException {
+        try (FileChannel ch = FileChannel.open(file(id), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            Segment s = new Segment(id, ch.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+            live.put(id, s);
+            segmentIds.add(id);
+            return s;
+        }
+    }
+
+
+    /** Live segments are shared with the writers; older ones are mapped read-only. */
+    private Segment segment(long id) {
+        Segment s = live.get(id);
+        if (s != null) return s;
+        try (FileChannel ch = FileChannel.open(file(id), StandardOpenOption.READ)) {
+            return new Segment(id, ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size()));
+        } catch (IOException e) {
+            log.warn("Audit journal: cannot read segment {}, skipping it: {}", id, e.getMessage());
+            return new Segment(id, ByteBuffer.allocateDirect(0));
+        }
+    }
+
+
+    /** Moves the reader to the next segment, if there is one. */
+    private boolean advance() {
+        Long next = segmentIds.higher(readSegment.id);
+        if (next == null) return false;
+        readSegment = segment(next);
+        readOffset = 0;
+        return true;
+    }
+
+
+    private void delete(long id) {
+        if (active != null && active.id == id) return;
+        live.remove(id);
+        segmentIds.remove(id);
+        try {
+            Files.deleteIfExists(file(id));
+        } catch (IOException e) {
+            log.warn("Audit journal: cannot delete segment {}: {}", id, e.getMessage());
+        }
+    }
+
+
+    private void loadCheckpoint() throws IOException {
+        Path cp = dir.resolve("checkpoint");
+        if (!Files.exists(cp)) {
+            checkpointSegment = segmentIds.isEmpty() ? 1 : segmentIds.first();
+            checkpointOffset = 0;
+            return;
+        }
+        ByteBuffer b = ByteBuffer.wrap(Files.readAllBytes(cp));
+        checkpointSegment = b.getLong();
+        checkpointOffset = b.getInt();
+    }
+
+
+    private Path file(long id) {
+        return dir.resolve(String.format("%016d%s", id, SUFFIX));
+    }
+
+
+    private static void write(ByteBuffer buf, int off, int size, Instant at, ActionLog log, String[] fields) {
+        buf.putLong(off + 8, at.getEpochSecond() * 1_000_000L + at.getNano() / 1_000);
+        buf.putLong(off + 16, log.getDurationMicros() != null ? log.getDurationMicros() : -1);
+        buf.putInt(off + 24, log.getStatus());
+        buf.put(off + 28, (byte) (log.isSuccess() ? 1 : 0));
+        int p = off + HEADER;
+        for (int i = 0; i < fields.length; i++) p = putString(buf, p, fields[i], LIMITS[i]);
+
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(off + 8, size - 8));
+        buf.putInt(off + 4, (int) crc.getValue());
+        INT.setRelease(buf, off, size);
+    }
+
+
+    private static AuditPipeline.AuditRecord decode(ByteBuffer buf, int off, int len) {
+        if (len < HEADER || off + len > buf.capacity()) return null;
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(off + 8, len - 8));
+        if ((int) crc.getValue() != buf.getInt(off + 4)) return null;
+
+        long micros = buf.getLong(off + 8);
+        long duration = buf.getLong(off + 16);
+        String[] f = new String[LIMITS.length];
+        int p = off + HEADER;
+        for (int i = 0; i < f.length; i++) {
+            int n = buf.getShort(p) & 0xFFFF;
+            p += 2;
+            if (n == NULL_STRING) continue;
+            byte[] bytes = new byte[n];
+            buf.get(p, bytes);
+            f[i] = new String(bytes, StandardCharsets.UTF_8);
+            p += n;
+        }
+        ActionLog log = ActionLog.builder()
+                .username(f[0]).method(f[1]).path(f[2]).ip(f[3]).userAgent(f[4])
+                .errorMessage(f[5]).msg(f[6])
+                .status(buf.getInt(off + 24))
+                .success(buf.get(off + 28) != 0)
+                .durationMicros(duration >= 0 ? duration : null)
+                .build();
+        return new AuditPipeline.AuditRecord(log,
+                Instant.ofEpochSecond(Math.floorDiv(micros, 1_000_000L), Math.floorMod(micros, 1_000_000L) * 1_000L));
+    }
+
+
+    /** Number of chars kept (cut to {@code limit}, never splitting a surrogate pair). */
+    private static int keep(String s, int limit) {
+        int n = Math.min(s.length(), limit);
+        return n < s.length() && n > 0 && Character.isHighSurrogate(s.charAt(n - 1)) ? n - 1 : n;
+    }
+
+
+    private static int utf8Length(String s, int limit) {
+        if (s == null) return 0;
+        int bytes = 0;
+        for (int i = 0, n = keep(s, limit); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) bytes++;
+            else if (c < 0x800) bytes += 2;
+            else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else bytes += 3;
+        }
+        return bytes;
+    }
+
+
+    /** Writes u16 length + UTF-8 bytes straight into the mapping (no intermediate byte[]). */
+    private static int putString(ByteBuffer buf, int p, String s, int limit) {
+        if (s == null) {
+            buf.putShort(p, (short) NULL_STRING);
+            return p + 2;
+        }
+        int start = p;
+        p += 2;
+        for (int i = 0, n = keep(s, limit); i < n; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf.put(p++, (byte) c);
+            } else if (c < 0x800) {
+                buf.put(p++, (byte) (0xC0 | c >> 6));
+                buf.put(p++, (byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf.put(p++, (byte) (0xF0 | cp >> 18));
+                buf.put(p++, (byte) (0x80 | cp >> 12 & 0x3F));
+                buf.put(p++, (byte) (0x80 | cp >> 6 & 0x3F));
+                buf.put(p++, (byte) (0x80 | cp & 0x3F));
+            } else {
+                buf.put(p++, (byte) (0xE0 | c >> 12));
+                buf.put(p++, (byte) (0x80 | c >> 6 & 0x3F));
+                buf.put(p++, (byte) (0x80 | c & 0x3F));
+            }
+        }
+        buf.putShort(start, (short) (p - start - 2));
+        return p;
+    }
+}
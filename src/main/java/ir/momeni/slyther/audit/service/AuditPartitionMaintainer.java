@@ -0,0 +1,179 @@
+package ir.momeni.slyther.audit.service;
+
+import ir.momeni.slyther.common.db.DatabaseVendor;
+import ir.momeni.slyther.config.AppProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Keeps the {@code action_logs} partitions (see the V11 migration) rolling:
+ * - creates {@code create-ahead} daily or monthly partitions beyond the current one, so
+ *   inserts never land in the catch-all partition;
+ * - drops whole partitions whose upper bound is older than {@code keep} (retention without DELETE).
+ * <p>
+ * MariaDB: new partitions are split off {@code p_future} with REORGANIZE PARTITION (cheap while
+ * it is empty) and old ones removed with DROP PARTITION.
+ * PostgreSQL: {@code CREATE TABLE ... PARTITION OF} and {@code DROP TABLE}.
+ * <p>
+ * Boundaries are UTC dates. Runs at startup and every {@code check-interval}; if several
+ * nodes race, the loser's DDL fails harmlessly and is retried on the next run.
+ */
+@Slf4j
+@Component
+public class AuditPartitionMaintainer {
+
+    /** A partition and its exclusive upper bound (null for MAXVALUE / DEFAULT). */
+    record Partition(String name, LocalDate upperBound) { }
+
+    private static final Pattern DATE = Pattern.compile("(\\d{4}-\\d{2}-\\d{2})");
+    private static final Pattern PG_UPPER = Pattern.compile("TO \\('(\\d{4}-\\d{2}-\\d{2})");
+    private static final DateTimeFormatter MONTHLY = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final DateTimeFormatter DAILY = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbc;
+    private final AppProperties.Audit.Retention cfg;
+    private volatile DatabaseVendor vendor;
+
+    public AuditPartitionMaintainer(JdbcTemplate jdbc, AppProperties props) {
+        this.jdbc = jdbc;
+        this.cfg = props.getAudit().getRetention();
+    }
+
+
+    /** Makes sure the current partitions exist before the first audit rows arrive. */
+    @PostConstruct
+    void init() {
+        try {
+            maintain();
+        } catch (DataAccessException e) {
+            log.warn("Audit partition maintenance failed at startup: {}", e.getMessage());
+        }
+    }
+
+
+    /** Creates upcoming partitions and drops expired ones. */
+    @Scheduled(initialDelayString = "${app.audit.retention.check-interval:PT1H}",
+            fixedDelayString = "${app.audit.retention.check-interval:PT1H}")
+    public synchronized void maintain() {
+        if (!cfg.isEnabled()) return;
+        DatabaseVendor v = vendor();
+        List<Partition> partitions = list(v);
+        if (partitions.isEmpty()) {
+            log.debug("action_logs is not partitioned; skipping maintenance");
+            return;
+        }
+
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        createAhead(v, partitions, today);
+        dropExpired(v, partitions, today.minusDays(cfg.getKeep().toDays()));
+    }
+
+
+    private void createAhead(DatabaseVendor v, List<Partition> partitions, LocalDate today) {
+        LocalDate covered = null;
+        String future = null;
+        for (Partition p : partitions) {
+            if (p.upperBound() == null) future = p.name();
+            else if (covered == null || p.upperBound().isAfter(covered)) covered = p.upperBound();
+        }
+        if (covered == null) covered = unitStart(today);
+
+        LocalDate target = unitStart(today);
+        for (int i = 0; i <= cfg.getCreateAhead(); i++) target = next(target);
+
+        List<String> defs = new ArrayList<>();
+        for (LocalDate from = covered; from.isBefore(target); from = next(from)) {
+            LocalDate to = next(from);
+            String name = "p" + from.format(cfg.getGranularity() == AppProperties.Audit.Granularity.DAILY ? DAILY : MONTHLY);
+            switch (v) {
+                case MARIADB -> defs.add("PARTITION " + name + " VALUES LESS THAN ('" + to + " 00:00:00')");
+                case POSTGRESQL -> defs.add("CREATE TABLE IF NOT EXISTS action_logs_" + name + " PARTITION OF action_logs "
+                        + "FOR VALUES FROM ('" + from + " 00:00:00') TO ('" + to + " 00:00:00')");
+            }
+        }
+        if (defs.isEmpty()) return;
+
+        switch (v) {
+            case MARIADB -> {
+                if (future == null) {
+                    log.warn("action_logs has no MAXVALUE partition; cannot add partitions");
+                    return;
+                }
+                jdbc.execute("ALTER TABLE action_logs REORGANIZE PARTITION " + future + " INTO ("
+                        + String.join(", ", defs) + ", PARTITION " + future + " VALUES LESS THAN (MAXVALUE))");
+            }
+            case POSTGRESQL -> defs.forEach(jdbc::execute);
+        }
+        log.info("Created {} action_logs partition(s) up to {}", defs.size(), target);
+    }
+
+
+    private void dropExpired(DatabaseVendor v, List<Partition> partitions, LocalDate cutoff) {
+        List<String> expired = new ArrayList<>();
+        for (Partition p : partitions) {
+            if (p.upperBound() != null && !p.upperBound().isAfter(cutoff)) expired.add(p.name());
+        }
+        if (expired.isEmpty()) return;
+
+        switch (v) {
+            case MARIADB -> jdbc.execute("ALTER TABLE action_logs DROP PARTITION " + String.join(", ", expired));
+            case POSTGRESQL -> expired.forEach(name -> jdbc.execute("DROP TABLE IF EXISTS \"" + name + "\""));
+        }
+        log.info("Dropped {} expired action_logs partition(s) (older than {}): {}", expired.size(), cutoff, expired);
+    }
+
+
+    /** Reads the partitions in boundary order. */
+    private List<Partition> list(DatabaseVendor v) {
+        return switch (v) {
+            case MARIADB -> jdbc.query("SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM INFORMATION_SCHEMA.PARTITIONS "
+                            + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'action_logs' AND PARTITION_NAME IS NOT NULL "
+                            + "ORDER BY PARTITION_ORDINAL_POSITION",
+                    (rs, i) -> new Partition(rs.getString(1), date(DATE, rs.getString(2))));
+            case POSTGRESQL -> jdbc.query("SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i "
+                            + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+                            + "WHERE p.relname = 'action_logs' ORDER BY c.relname",
+                    (rs, i) -> new Partition(rs.getString(1), date(PG_UPPER, rs.getString(2))));
+        };
+    }
+
+
+    /** First date of the partition unit containing {@code d}. */
+    private LocalDate unitStart(LocalDate d) {
+        return cfg.getGranularity() == AppProperties.Audit.Granularity.DAILY ? d : d.withDayOfMonth(1);
+    }
+
+
+    /** Upper bound of the partition starting at {@code d}. */
+    private LocalDate next(LocalDate d) {
+        return cfg.getGranularity() == AppProperties.Audit.Granularity.DAILY ? d.plusDays(1) : d.withDayOfMonth(1).plusMonths(1);
+    }
+
+
+    private static LocalDate date(Pattern p, String bound) {
+        if (bound == null) return null;
+        Matcher m = p.matcher(bound);
+        return m.find() ? LocalDate.parse(m.group(1)) : null;
+    }
+
+
+    private DatabaseVendor vendor() {
+        DatabaseVendor v = vendor;
+        if (v == null) vendor = v = jdbc.execute((ConnectionCallback<DatabaseVendor>) DatabaseVendor::of);
+        return v;
+    }
+}
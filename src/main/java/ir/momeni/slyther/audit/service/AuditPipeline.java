@@ -0,0 +1,350 @@
+package ir.momeni.slyther.audit.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.momeni.slyther.audit.entity.ActionLog;
+import ir.momeni.slyther.config.AppProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * Asynchronous, batched writer for {@link ActionLog} records.
+ * <p>
+ * Request threads only append to the {@link AuditJournal} (memory-mapped, survives crashes and
+ * DB outages) or, without a journal, enqueue in memory (lock-free). A single background thread
+ * ("audit-writer") ships both to the {@link AuditSink} selected by {@code app.audit.sink}
+ * (multi-row INSERTs into {@code action_logs}, or bulk inserts into MongoDB), writing a batch:
+ * - as soon as {@code batch-size} records are waiting, or
+ * - every {@code flush-interval} otherwise.
+ * Journaled batches that cannot be written stay in the journal and are retried every round
+ * while the sink is unreachable. A batch the sink rejects (constraint, bad value) is split in
+ * halves until the offending records are isolated: the rest is written, the rejected records
+ * are quarantined to {@code spill-file} and the journal moves past them.
+ * <p>
+ * The queue (also used while the journal is full) is bounded by {@code queue-capacity}.
+ * When it is full, {@code overflow} decides:
+ * - BLOCK: the caller waits up to {@code block-timeout} for space, then the record is dropped;
+ * - DROP: the record is dropped and counted;
+ * - SPILL: the record is appended to {@code spill-file} as one JSON line (NDJSON).
+ * <p>
+ * Failed batches are retried {@code max-retries} times with a short backoff, then spilled
+ * (SPILL) or counted as failed. On shutdown the writer drains everything still queued;
+ * records submitted after that are written synchronously.
+ * <p>
+ * Metrics: {@code audit.records{outcome=written|dropped|spilled|failed}},
+ * {@code audit.queue.size} and {@code audit.journal.segments}.
+ */
+@Slf4j
+@Component
+public class AuditPipeline {
+
+    /** A queued audit entry with its creation time (the row's created_at). */
+    public record AuditRecord(ActionLog log, Instant createdAt) { }
+
+    private final AuditSink sink;
+    private final AuditJournal journal;
+    private final ObjectMapper json;
+    private final AppProperties.Audit cfg;
+    private final int batchSize;
+
+    private final Queue<AuditRecord> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger journaled = new AtomicInteger();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditPipeline(JdbcAuditSink jdbcSink, MongoAuditSink mongoSink, AuditJournal journal,
+                         ObjectMapper json, AppProperties props, MeterRegistry meters) {
+        this.cfg = props.getAudit();
+        this.sink = switch (cfg.getSink().toLowerCase()) {
+            case "jdbc" -> jdbcSink;
+            case "mongo" -> mongoSink;
+            default -> throw new IllegalArgumentException("Unknown audit sink: " + cfg.getSink());
+        };
+        this.journal = journal;
+        this.json = json;
+        this.batchSize = Math.max(1, Math.min(cfg.getBatchSize(), sink.maxBatchSize()));
+
+        outcome(meters, "written", written, "Audit records stored by the sink");
+        outcome(meters, "dropped", dropped, "Audit records lost (queue full, or spill failed)");
+        outcome(meters, "spilled", spilled, "Audit records appended to the spill file");
+        outcome(meters, "failed", failed, "Audit records the sink refused after all retries");
+        Gauge.builder("audit.queue.size", size, AtomicInteger::get)
+                .description("Audit records waiting in the in-memory queue").register(meters);
+        Gauge.builder("audit.journal.segments", journal, AuditJournal::segments)
+                .description("Journal segment files not fully shipped").register(meters);
+    }
+
+
+    @PostConstruct
+    void start() {
+        running = true;
+        writer = new Thread(this::run, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+
+    /**
+     * Queues a record for writing; never blocks unless the overflow policy is BLOCK.
+     *
+     * @param log the audit entry (its id and timestamps are ignored)
+     */
+    public void submit(ActionLog log) {
+        AuditRecord r = new AuditRecord(log, Instant.now());
+        if (journal.isEnabled() && journal.append(log, r.createdAt())) {
+            // Shipped by the writer (or replayed by the next start if we are shutting down)
+            if (journaled.incrementAndGet() == batchSize) LockSupport.unpark(writer);
+            return;
+        }
+        if (!running) {
+            // Shut down: no writer left to hand the record to
+            writeOrGiveUp(List.of(r));
+            return;
+        }
+        if (!reserve() && !onOverflow(r)) return;
+        queue.add(r);
+        if (size.get() >= batchSize) LockSupport.unpark(writer);
+    }
+
+
+    /** Stops the writer after it has drained the queue (bounded by {@code shutdown-timeout}). */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(writer);
+        writer.join(cfg.getShutdownTimeout().toMillis());
+        if (!writer.isAlive()) drain(new ArrayList<>());    // records that raced with the shutdown
+        else log.warn("Audit writer did not finish within {}; {} record(s) left", cfg.getShutdownTimeout(), size.get());
+    }
+
+
+    private static void outcome(MeterRegistry meters, String outcome, LongAdder counter, String description) {
+        FunctionCounter.builder("audit.records", counter, LongAdder::sum)
+                .tag("outcome", outcome).description(description).register(meters);
+    }
+
+
+    /** Takes a queue slot if one is free. */
+    private boolean reserve() {
+        int capacity = cfg.getQueueCapacity();
+        for (int s; (s = size.get()) < capacity; ) {
+            if (size.compareAndSet(s, s + 1)) return true;
+        }
+        return false;
+    }
+
+
+    /**
+     * Applies the overflow policy to a record that found the queue full.
+     *
+     * @return true if a slot was obtained after all and the record should be queued
+     */
+    private boolean onOverflow(AuditRecord r) {
+        switch (cfg.getOverflow()) {
+            case BLOCK -> {
+                long deadline = System.nanoTime() + cfg.getBlockTimeout().toNanos();
+                do {
+                    LockSupport.unpark(writer);
+                    LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(200));
+                    if (reserve()) return true;
+                } while (running && System.nanoTime() < deadline);
+                dropped.increment();
+            }
+            case SPILL -> spill(List.of(r));
+            default -> dropped.increment();
+        }
+        return false;
+    }
+
+
+    /** Writer loop: wait for a full batch or the flush interval, then drain queue and journal. */
+    private void run() {
+        List<AuditRecord> batch = new ArrayList<>(batchSize);
+        long intervalNanos = cfg.getFlushInterval().toNanos();
+        while (running) {
+            if (size.get() < batchSize && journaled.get() < batchSize) LockSupport.parkNanos(this, intervalNanos);
+            drain(batch);
+            ship(batch);
+        }
+        drain(batch);
+        ship(batch);
+    }
+
+
+    /**
+     * Ships journaled records, {@code batchSize} rows per statement, checkpointing after each
+     * batch. A batch is left in the journal for the next round if the sink is unreachable;
+     * if the sink rejects it, its bad records are quarantined so they cannot stall the journal.
+     */
+    private void ship(List<AuditRecord> batch) {
+        if (!journal.isEnabled()) return;
+        journaled.set(0);
+        for (;;) {
+            journal.read(batch, batchSize);
+            if (batch.isEmpty()) return;
+            RuntimeException e = tryInsert(batch);
+            boolean ok = e == null || (isRejection(e) && quarantine(batch));
+            if (e == null) written.add(batch.size());
+            if (ok) journal.commit();
+            else journal.rewind();
+            batch.clear();
+            if (!ok) return;
+        }
+    }
+
+
+    /**
+     * Bisects a rejected batch: halves the sink accepts are written, single records it still
+     * rejects go to the spill file (whatever the overflow policy).
+     *
+     * @return false if the sink became unreachable meanwhile (the caller keeps the batch;
+     *         halves already written may then be shipped twice)
+     */
+    private boolean quarantine(List<AuditRecord> batch) {
+        if (batch.size() == 1) {
+            log.warn("Audit record quarantined to {}: {} {} at {}", cfg.getSpillFile(),
+                    batch.get(0).log().getMethod(), batch.get(0).log().getPath(), batch.get(0).createdAt());
+            spill(batch);
+            return true;
+        }
+        int mid = batch.size() / 2;
+        return isolate(batch.subList(0, mid)) && isolate(batch.subList(mid, batch.size()));
+    }
+
+
+    /** One attempt at a part of a rejected batch, bisecting further if it is rejected too. */
+    private boolean isolate(List<AuditRecord> part) {
+        try {
+            sink.write(part);
+            written.add(part.size());
+            return true;
+        } catch (RuntimeException e) {
+            return isRejection(e) && quarantine(part);
+        }
+    }
+
+
+    /** A translated failure that is not about reaching the sink, so retrying the same rows cannot help. */
+    static boolean isRejection(RuntimeException e) {
+        return e instanceof DataAccessException
+                && !(e instanceof TransientDataAccessException)
+                && !(e instanceof RecoverableDataAccessException)
+                && !(e instanceof DataAccessResourceFailureException);
+    }
+
+
+    /** Writes everything currently queued, {@code batchSize} rows per statement. */
+    private void drain(List<AuditRecord> batch) {
+        for (;;) {
+            AuditRecord r;
+            while (batch.size() < batchSize && (r = queue.poll()) != null) batch.add(r);
+            if (batch.isEmpty()) return;
+            size.addAndGet(-batch.size());
+            writeOrGiveUp(batch);
+            batch.clear();
+        }
+    }
+
+
+    /** Inserts a batch with retries; spills or counts it as failed when the DB keeps refusing. */
+    private void writeOrGiveUp(List<AuditRecord> batch) {
+        if (tryInsert(batch) == null) {
+            written.add(batch.size());
+            return;
+        }
+        if (cfg.getOverflow() == AppProperties.Audit.Overflow.SPILL) spill(batch);
+        else failed.add(batch.size());
+    }
+
+
+    /**
+     * Inserts a batch, retrying {@code max-retries} times with a growing backoff.
+     *
+     * @return null if written, otherwise the last failure
+     */
+    private RuntimeException tryInsert(List<AuditRecord> batch) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                sink.write(batch);
+                return null;
+            } catch (RuntimeException e) {     // DataAccessException, or a sink's untranslated client exception
+                if (attempt >= cfg.getMaxRetries()) {
+                    log.warn("Audit batch of {} record(s) not written: {}", batch.size(), e.getMessage());
+                    return e;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(200L * (attempt + 1)));
+            }
+        }
+    }
+
+
+    /** Appends records to the spill file, one JSON object per line. */
+    private synchronized void spill(List<AuditRecord> records) {
+        Path file = Path.of(cfg.getSpillFile());
+        try {
+            if (file.getParent() != null) Files.createDirectories(file.getParent());
+            try (BufferedWriter w = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (AuditRecord r : records) {
+                    w.write(json.writeValueAsString(toMap(r)));
+                    w.newLine();
+                }
+            }
+            spilled.add(records.size());
+        } catch (IOException e) {
+            log.warn("Audit spill to {} failed: {}", file, e.getMessage());
+            dropped.add(records.size());
+        }
+    }
+
+
+    private static Map<String, Object> toMap(AuditRecord r) {
+        ActionLog l = r.log();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("created_at", r.createdAt().toString());
+        m.put("username", l.getUsername());
+        m.put("method", l.getMethod());
+        m.put("path", l.getPath());
+        m.put("ip", l.getIp());
+        m.put("user_agent", l.getUserAgent());
+        m.put("status", l.getStatus());
+        m.put("success", l.isSuccess());
+        m.put("error_message", l.getErrorMessage());
+        m.put("msg", l.getMsg());
+        m.put("duration_micros", l.getDurationMicros());
+        return m;
+    }
+}
@@ -0,0 +1,226 @@
+package ir.momeni.slyther.audit.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ir.momeni.slyther.config.AppProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+
+/**
+ * Read path for {@code action_logs}: filtered keyset pages and streaming NDJSON exports.
+ * <p>
+ * Pages are ordered newest first on {@code (created_at, id)} and continue from an opaque
+ * cursor (the last row's key) instead of OFFSET, so page N costs the same as page 1:
+ * {@code WHERE ... AND (created_at < ? OR (created_at = ? AND id < ?)) ORDER BY created_at DESC, id DESC}.
+ * The V12 indexes lead with each filter column followed by {@code (created_at, id)}.
+ * <p>
+ * Exports run oldest first over a forward-only, read-only cursor with {@code export-fetch-size}
+ * rows per round-trip, writing one JSON object per line as rows arrive; memory stays constant
+ * whatever the range. The cursor runs in a read-only transaction (PostgreSQL only streams
+ * with auto-commit off).
+ */
+@Service
+public class AuditQueryService {
+
+    /**
+     * Query filters; null fields are not applied.
+     *
+     * @param username exact username
+     * @param path     exact path, or a prefix when it ends with {@code /**}
+     * @param status   exact HTTP status
+     * @param success  success flag
+     * @param from     inclusive lower bound of created_at
+     * @param to       exclusive upper bound of created_at
+     */
+    public record Filter(String username, String path, Integer status, Boolean success, Instant from, Instant to) { }
+
+    /** One audit row. */
+    public record Entry(long id, Instant createdAt, String username, String method, String path, String ip,
+                        String userAgent, int status, boolean success, String errorMessage, String msg,
+                        Long durationMicros) { }
+
+    /**
+     * A page of entries, newest first.
+     *
+     * @param items      the entries
+     * @param nextCursor cursor of the following page, or null on the last page
+     */
+    public record Page(List<Entry> items, String nextCursor) { }
+
+    private static final String COLUMNS = "SELECT id, created_at, username, method, path, ip, user_agent, "
+            + "status, success, error_message, msg, duration_micros FROM action_logs";
+
+    private static final RowMapper<Entry> ENTRY = (rs, i) -> new Entry(
+            rs.getLong(1),
+            rs.getObject(2, LocalDateTime.class).toInstant(ZoneOffset.UTC),
+            rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7),
+            rs.getInt(8), rs.getBoolean(9), rs.getString(10), rs.getString(11), rs.getObject(12, Long.class));
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate readOnly;
+    private final ObjectMapper json;
+    private final AppProperties.Audit.Query cfg;
+
+    public AuditQueryService(JdbcTemplate jdbc, PlatformTransactionManager tx, ObjectMapper json, AppProperties props) {
+        this.jdbc = jdbc;
+        this.readOnly = new TransactionTemplate(tx);
+        this.readOnly.setReadOnly(true);
+        this.json = json;
+        this.cfg = props.getAudit().getQuery();
+    }
+
+
+    /**
+     * Reads one page.
+     *
+     * @param filter filters to apply
+     * @param cursor {@link Page#nextCursor()} of the previous page, or null for the first page
+     * @param limit  page size (null for the default; capped at {@code max-page-size})
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public Page search(Filter filter, String cursor, Integer limit) {
+        int size = limit == null ? cfg.getDefaultPageSize() : Math.max(1, Math.min(limit, cfg.getMaxPageSize()));
+        List<Object> args = new ArrayList<>();
+        StringBuilder sql = new StringBuilder(COLUMNS).append(where(filter, args));
+        if (cursor != null && !cursor.isBlank()) {
+            ByteBuffer key = decode(cursor);
+            LocalDateTime at = fromMicros(key.getLong());
+            sql.append(args.isEmpty() ? " WHERE " : " AND ").append("(created_at < ? OR (created_at = ? AND id < ?))");
+            args.add(at);
+            args.add(at);
+            args.add(key.getLong());
+        }
+        // One extra row tells whether another page exists
+        sql.append(" ORDER BY created_at DESC, id DESC LIMIT ").append(size + 1);
+
+        List<Entry> rows = jdbc.query(sql.toString(), ENTRY, args.toArray());
+        if (rows.size() <= size) return new Page(rows, null);
+        List<Entry> items = rows.subList(0, size);
+        return new Page(items, encode(items.get(size - 1)));
+    }
+
+
+    /**
+     * Streams all matching rows, oldest first, as NDJSON.
+     *
+     * @param filter filters to apply
+     * @param out    destination (not closed)
+     * @return number of rows written
+     */
+    public long export(Filter filter, OutputStream out) {
+        List<Object> args = new ArrayList<>();
+        String sql = COLUMNS + where(filter, args) + " ORDER BY created_at, id";
+        Long rows = readOnly.execute(status -> {
+            try (JsonGenerator gen = json.getFactory().createGenerator(out)) {
+                gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                gen.setRootValueSeparator(null);    // lines are separated explicitly below
+                long[] count = {0};
+                jdbc.query(con -> {
+                    PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                    ps.setFetchSize(cfg.getExportFetchSize());
+                    for (int i = 0; i < args.size(); i++) ps.setObject(i + 1, args.get(i));
+                    return ps;
+                }, rs -> {
+                    try {
+                        gen.writeObject(ENTRY.mapRow(rs, 0));
+                        gen.writeRaw('\n');
+                        if (++count[0] % cfg.getExportFetchSize() == 0) gen.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);   // client went away: stop reading
+                    }
+                });
+                gen.flush();
+                return count[0];
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        return rows == null ? 0 : rows;
+    }
+
+
+    /** Builds the WHERE clause for the filters, appending bind values to {@code args}. */
+    private static String where(Filter f, List<Object> args) {
+        List<String> terms = new ArrayList<>();
+        if (f.username() != null) {
+            terms.add("username = ?");
+            args.add(f.username());
+        }
+        if (f.path() != null) {
+            if (f.path().endsWith("/**")) {
+                terms.add("path LIKE ? ESCAPE '!'");
+                args.add(likeEscape(f.path().substring(0, f.path().length() - 2)) + "%");
+            } else {
+                terms.add("path = ?");
+                args.add(f.path());
+            }
+        }
+        if (f.status() != null) {
+            terms.add("status = ?");
+            args.add(f.status());
+        }
+        if (f.success() != null) {
+            terms.add("success = ?");
+            args.add(f.success());
+        }
+        if (f.from() != null) {
+            terms.add("created_at >= ?");
+            args.add(LocalDateTime.ofInstant(f.from(), ZoneOffset.UTC));
+        }
+        if (f.to() != null) {
+            terms.add("created_at < ?");
+            args.add(LocalDateTime.ofInstant(f.to(), ZoneOffset.UTC));
+        }
+        return terms.isEmpty() ? "" : " WHERE " + String.join(" AND ", terms);
+    }
+
+
+    private static String likeEscape(String s) {
+        return s.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+
+    /** Cursor = base64url(created_at as epoch micros, id): opaque to clients, 22 chars. */
+    static String encode(Entry last) {
+        Instant at = last.createdAt();
+        ByteBuffer key = ByteBuffer.allocate(16)
+                .putLong(at.getEpochSecond() * 1_000_000L + at.getNano() / 1_000)
+                .putLong(last.id());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(key.array());
+    }
+
+
+    static ByteBuffer decode(String cursor) {
+        byte[] raw;
+        try {
+            raw = Base64.getUrlDecoder().decode(cursor);
+        } catch (IllegalArgumentException e) {
+            raw = null;
+        }
+        if (raw == null || raw.length != 16) throw new IllegalArgumentException("Invalid cursor");
+        return ByteBuffer.wrap(raw);
+    }
+
+
+    static LocalDateTime fromMicros(long micros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+                (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,225 @@
+package ir.momeni.slyther.audit.service;
+
+import ir.momeni.slyther.common.db.DatabaseVendor;
+import ir.momeni.slyther.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+
+/**
+ * Aggregation mode of the audit log: successful idempotent requests are counted per
+ * (minute, method, path template, status, username) instead of being written as rows.
+ * <p>
+ * Policy ({@code app.audit.rollup}): a request is rolled up only when
+ * - it succeeded (no exception, status below 400),
+ * - its method is one of {@code methods} (GET, HEAD, OPTIONS by default), and
+ * - its path is not under {@code full-paths} (auth endpoints by default).
+ * Everything else (failures, auth events, mutations) keeps a full {@code action_logs} row.
+ * <p>
+ * Counters live in memory and are added to {@code action_log_rollups} every
+ * {@code flush-interval} with one batched vendor upsert (in one transaction), so several nodes
+ * can share a key. Requests without a route template count under {@value #UNMATCHED}, and
+ * templates are cut to the column length. If the batch fails because the DB is unreachable the
+ * counts are kept for the next attempt; if the DB rejects it, the rows are written one by one
+ * and the ones still rejected are logged and dropped. At most {@code max-keys} keys are
+ * held; beyond that requests fall back to full rows. Rows older than
+ * {@code app.audit.retention.keep} are purged.
+ */
+@Slf4j
+@Component
+public class AuditRollup {
+
+    /** One counter key; minute is epoch minutes (UTC), username "" when anonymous. */
+    record Key(long minute, String method, String template, int status, String username) { }
+
+    private static final String TABLE = "action_log_rollups";
+    private static final String[] KEYS = {"minute_start", "method", "path_template", "status", "username"};
+
+    /** Template of requests no route matched (raw paths would be unbounded and may exceed the column). */
+    static final String UNMATCHED = "(unmatched)";
+
+    /** Length of {@code path_template} (V13). */
+    private static final int TEMPLATE_LENGTH = 255;
+
+    private final JdbcTemplate jdbc;
+    private final TransactionTemplate tx;
+    private final AppProperties.Audit.Rollup cfg;
+    private final AppProperties.Audit.Retention retention;
+    private final Set<String> methods;
+    private final String[] exactPaths;
+    private final String[] prefixPaths;
+
+    private final Map<Key, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final LongAdder rolledUp = new LongAdder();
+    private volatile String upsertSql;
+
+    public AuditRollup(JdbcTemplate jdbc, PlatformTransactionManager tx, AppProperties props) {
+        this.jdbc = jdbc;
+        this.tx = new TransactionTemplate(tx);
+        this.cfg = props.getAudit().getRollup();
+        this.retention = props.getAudit().getRetention();
+        this.methods = cfg.getMethods().stream().map(m -> m.toUpperCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+        this.exactPaths = cfg.getFullPaths().stream().filter(p -> !p.endsWith("/**")).toArray(String[]::new);
+        this.prefixPaths = cfg.getFullPaths().stream().filter(p -> p.endsWith("/**"))
+                .map(p -> p.substring(0, p.length() - 2)).toArray(String[]::new);
+    }
+
+
+    /**
+     * Counts a successful request if the policy rolls it up.
+     *
+     * @param method   HTTP method
+     * @param path     request path (matched against {@code full-paths})
+     * @param template matched route pattern, e.g. "/api/users/{id}", or null ({@value #UNMATCHED})
+     * @param status   response status (below 400)
+     * @param username authenticated user, or null
+     * @return true if counted; false if the caller should write a full row
+     */
+    public boolean offer(String method, String path, String template, int status, String username) {
+        if (!cfg.isEnabled() || !methods.contains(method) || fullRow(path)) return false;
+        Key key = new Key(System.currentTimeMillis() / 60_000L, method, template(template),
+                status, username != null ? username : "");
+        AtomicLong c = counters.get(key);
+        if (c == null) {
+            if (counters.size() >= cfg.getMaxKeys()) return false;
+            c = counters.computeIfAbsent(key, k -> new AtomicLong());
+        }
+        c.incrementAndGet();
+        rolledUp.increment();
+        return true;
+    }
+
+
+    /** @return requests counted instead of written as rows since startup */
+    public long rolledUp() {
+        return rolledUp.sum();
+    }
+
+
+    /** Adds the in-memory counts to the summary table and forgets finished minutes. */
+    @Scheduled(initialDelayString = "${app.audit.rollup.flush-interval:PT1M}",
+            fixedDelayString = "${app.audit.rollup.flush-interval:PT1M}")
+    public synchronized void flush() {
+        if (counters.isEmpty()) return;
+        long currentMinute = System.currentTimeMillis() / 60_000L;
+        List<Key> keys = new ArrayList<>();
+        List<Object[]> rows = new ArrayList<>();
+        for (Map.Entry<Key, AtomicLong> e : counters.entrySet()) {
+            Key k = e.getKey();
+            long n = e.getValue().getAndSet(0);
+            if (k.minute() < currentMinute && n == 0) {
+                // Finished minute: drop the key; a late increment that raced the removal is carried over
+                if (counters.remove(k, e.getValue())) n = e.getValue().getAndSet(0);
+            }
+            if (n == 0) continue;
+            keys.add(k);
+            rows.add(new Object[]{LocalDateTime.ofEpochSecond(k.minute() * 60, 0, ZoneOffset.UTC),
+                    k.method(), k.template(), k.status(), k.username(), n});
+        }
+        if (rows.isEmpty()) return;
+
+        try {
+            // One transaction, so a failed batch added nothing and can be retried as a whole
+            tx.executeWithoutResult(s -> jdbc.batchUpdate(upsertSql(), rows));
+        } catch (DataAccessException e) {
+            if (!AuditPipeline.isRejection(e)) {
+                log.warn("Audit rollup flush of {} counter(s) failed, keeping them: {}", rows.size(), e.getMessage());
+                keep(keys, rows, 0);
+                return;
+            }
+            flushEach(keys, rows);
+        }
+    }
+
+
+    /** Writes rows one by one after the DB rejected the batch, dropping the rows it still rejects. */
+    private void flushEach(List<Key> keys, List<Object[]> rows) {
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                jdbc.update(upsertSql(), rows.get(i));
+            } catch (DataAccessException e) {
+                if (!AuditPipeline.isRejection(e)) {
+                    log.warn("Audit rollup flush interrupted, keeping {} counter(s): {}", rows.size() - i, e.getMessage());
+                    keep(keys, rows, i);
+                    return;
+                }
+                log.warn("Audit rollup counter dropped ({} request(s) of {}): {}", rows.get(i)[5], keys.get(i), e.getMessage());
+            }
+        }
+    }
+
+
+    /** Puts the counts of rows {@code from..} back for the next flush. */
+    private void keep(List<Key> keys, List<Object[]> rows, int from) {
+        for (int i = from; i < keys.size(); i++) {
+            long n = (long) rows.get(i)[5];
+            counters.computeIfAbsent(keys.get(i), k -> new AtomicLong()).addAndGet(n);
+        }
+    }
+
+
+    /** Deletes summary rows older than the audit retention. */
+    @Scheduled(initialDelayString = "${app.audit.retention.check-interval:PT1H}",
+            fixedDelayString = "${app.audit.retention.check-interval:PT1H}")
+    public void purge() {
+        if (!cfg.isEnabled() || !retention.isEnabled()) return;
+        LocalDateTime cutoff = LocalDateTime.ofInstant(Instant.now().minus(retention.getKeep()), ZoneOffset.UTC)
+                .truncatedTo(ChronoUnit.MINUTES);
+        int n = jdbc.update("DELETE FROM " + TABLE + " WHERE minute_start < ?", cutoff);
+        if (n > 0) log.debug("Purged {} audit rollup row(s)", n);
+    }
+
+
+    /** Writes outstanding counts before the node goes away (including the current minute). */
+    @PreDestroy
+    void shutdown() {
+        flush();
+    }
+
+
+    private static String template(String template) {
+        if (template == null) return UNMATCHED;
+        if (template.length() <= TEMPLATE_LENGTH) return template;
+        int n = TEMPLATE_LENGTH;
+        if (Character.isHighSurrogate(template.charAt(n - 1))) n--;
+        return template.substring(0, n);
+    }
+
+
+    private boolean fullRow(String path) {
+        for (String p : exactPaths) if (p.equals(path)) return true;
+        for (String p : prefixPaths) if (path.startsWith(p)) return true;
+        return false;
+    }
+
+
+    private String upsertSql() {
+        String sql = upsertSql;
+        if (sql == null) {
+            DatabaseVendor vendor = jdbc.execute((ConnectionCallback<DatabaseVendor>) DatabaseVendor::of);
+            upsertSql = sql = vendor.upsertAddSql(TABLE, "request_count", KEYS);
+        }
+        return sql;
+    }
+}
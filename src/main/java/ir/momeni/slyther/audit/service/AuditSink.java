@@ -0,0 +1,32 @@
+package ir.momeni.slyther.audit.service;
+
+import org.springframework.dao.DataAccessException;
+
+import java.util.List;
+
+
+/**
+ * Destination of audit batches written by the {@link AuditPipeline}.
+ * <p>
+ * Selected with {@code app.audit.sink}:
+ * - jdbc: the {@code action_logs} table of the main database ({@link JdbcAuditSink})
+ * - mongo: a MongoDB time-series collection ({@link MongoAuditSink})
+ * <p>
+ * Implementations are called from the single writer thread only.
+ */
+public interface AuditSink {
+
+    /**
+     * Writes one batch. Throws if any record was not stored; the pipeline then retries the
+     * whole batch, so a partially written batch may store some records twice.
+     *
+     * @throws DataAccessException if the batch could not be written
+     */
+    void write(List<AuditPipeline.AuditRecord> batch);
+
+
+    /** @return largest batch a single write can take */
+    default int maxBatchSize() {
+        return Integer.MAX_VALUE;
+    }
+}
@@ -0,0 +1,86 @@
+package ir.momeni.slyther.audit.service;
+
+import ir.momeni.slyther.audit.entity.ActionLog;
+import ir.momeni.slyther.common.db.SequenceIdAllocator;
+import ir.momeni.slyther.config.AppProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+
+/**
+ * {@link AuditSink} writing to the {@code action_logs} table: one multi-row
+ * {@code INSERT ... VALUES (...), (...)} per batch, ids from the shared pooled sequence
+ * (see {@link SequenceIdAllocator}).
+ */
+@Component
+public class JdbcAuditSink implements AuditSink {
+
+    private static final String INSERT_PREFIX = "INSERT INTO action_logs "
+            + "(id, created_at, updated_at, username, method, path, ip, user_agent, status, success, error_message, msg, "
+            + "duration_micros) VALUES ";
+    private static final String ROW = "(?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int COLUMNS = 13;
+
+    /** Stay far below the 65535 bind-parameter limit of MariaDB/Postgres. */
+    private static final int MAX_ROWS = 65535 / COLUMNS / 2;
+
+    private final JdbcTemplate jdbc;
+    private final SequenceIdAllocator ids;
+    private final int fullBatch;
+    private final String fullBatchSql;
+
+    public JdbcAuditSink(JdbcTemplate jdbc, SequenceIdAllocator ids, AppProperties props) {
+        this.jdbc = jdbc;
+        this.ids = ids;
+        this.fullBatch = Math.max(1, Math.min(props.getAudit().getBatchSize(), MAX_ROWS));
+        this.fullBatchSql = insertSql(fullBatch);
+    }
+
+
+    @Override
+    public void write(List<AuditPipeline.AuditRecord> batch) {
+        long[] rowIds = new long[batch.size()];
+        ids.nextIds(rowIds, rowIds.length);
+        Object[] args = new Object[batch.size() * COLUMNS];
+        int i = 0, row = 0;
+        for (AuditPipeline.AuditRecord r : batch) {
+            ActionLog l = r.log();
+            LocalDateTime at = LocalDateTime.ofInstant(r.createdAt(), ZoneOffset.UTC);
+            args[i++] = rowIds[row++];
+            args[i++] = at;
+            args[i++] = at;
+            args[i++] = l.getUsername();
+            args[i++] = l.getMethod();
+            args[i++] = l.getPath();
+            args[i++] = l.getIp();
+            args[i++] = l.getUserAgent();
+            args[i++] = l.getStatus();
+            args[i++] = l.isSuccess();
+            args[i++] = l.getErrorMessage();
+            args[i++] = l.getMsg();
+            args[i++] = l.getDurationMicros();
+        }
+        jdbc.update(batch.size() == fullBatch ? fullBatchSql : insertSql(batch.size()), args);
+    }
+
+
+    @Override
+    public int maxBatchSize() {
+        return MAX_ROWS;
+    }
+
+
+    private static String insertSql(int rows) {
+        StringBuilder sb = new StringBuilder(INSERT_PREFIX.length() + rows * (ROW.length() + 2));
+        sb.append(INSERT_PREFIX);
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(ROW);
+        }
+        return sb.toString();
+    }
+}
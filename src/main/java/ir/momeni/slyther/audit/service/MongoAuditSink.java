@@ -0,0 +1,133 @@
+package ir.momeni.slyther.audit.service;
+
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.CreateCollectionOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.TimeSeriesGranularity;
+import com.mongodb.client.model.TimeSeriesOptions;
+import ir.momeni.slyther.audit.entity.ActionLog;
+import ir.momeni.slyther.config.AppProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * {@link AuditSink} writing to a MongoDB time-series collection, keeping the append-only
+ * audit traffic off the relational database that serves logins.
+ * <p>
+ * Collection layout (created on first use if missing):
+ * - time field {@code createdAt}, meta field {@code meta} = {username, path}, granularity seconds
+ *   (records of one user and path share compressed buckets)
+ * - {@code expireAfterSeconds} from {@code app.audit.mongo.expire-after} (re-applied at startup)
+ * - secondary indexes {@code (meta.username, createdAt desc)} and {@code (meta.path, createdAt desc)}
+ * <p>
+ * Each batch is one unordered bulk insert: the server applies the documents in parallel and
+ * does not stop at the first failure. Null fields are omitted.
+ * <p>
+ * Active only with {@code app.audit.sink=mongo}. The admin query API and partition
+ * retention work on the jdbc table only.
+ */
+@Slf4j
+@Component
+public class MongoAuditSink implements AuditSink {
+
+    private final MongoTemplate mongo;
+    private final AppProperties.Audit.Mongo cfg;
+    private final boolean enabled;
+    private volatile boolean ready;
+
+    public MongoAuditSink(MongoTemplate mongo, AppProperties props) {
+        this.mongo = mongo;
+        this.cfg = props.getAudit().getMongo();
+        this.enabled = "mongo".equalsIgnoreCase(props.getAudit().getSink());
+    }
+
+
+    /** Prepares the collection early; failures are retried on the first write. */
+    @PostConstruct
+    void init() {
+        if (!enabled) return;
+        try {
+            ensureCollection();
+        } catch (RuntimeException e) {
+            log.warn("Audit collection {} not prepared yet: {}", cfg.getCollection(), e.getMessage());
+        }
+    }
+
+
+    @Override
+    public void write(List<AuditPipeline.AuditRecord> batch) {
+        // A plain insert would silently create a regular (non time-series) collection
+        if (!ready) ensureCollection();
+        List<Document> docs = new ArrayList<>(batch.size());
+        for (AuditPipeline.AuditRecord r : batch) docs.add(toDocument(r));
+        mongo.bulkOps(BulkOperations.BulkMode.UNORDERED, cfg.getCollection()).insert(docs).execute();
+    }
+
+
+    /** Creates the time-series collection (or updates its TTL) and its indexes; idempotent. */
+    private synchronized void ensureCollection() {
+        if (ready) return;
+        String name = cfg.getCollection();
+        long ttl = cfg.getExpireAfter().toSeconds();
+        mongo.execute(db -> {
+            if (!mongo.collectionExists(name)) {
+                db.createCollection(name, new CreateCollectionOptions()
+                        .timeSeriesOptions(new TimeSeriesOptions("createdAt")
+                                .metaField("meta")
+                                .granularity(TimeSeriesGranularity.SECONDS))
+                        .expireAfter(ttl, TimeUnit.SECONDS));
+                log.info("Created time-series audit collection {} (expire after {})", name, cfg.getExpireAfter());
+            } else {
+                db.runCommand(new Document("collMod", name).append("expireAfterSeconds", ttl));
+            }
+            createIndexes(db, name);
+            return null;
+        });
+        ready = true;
+    }
+
+
+    private static void createIndexes(MongoDatabase db, String name) {
+        MongoCollection<Document> c = db.getCollection(name);
+        c.createIndex(Indexes.compoundIndex(Indexes.ascending("meta.username"), Indexes.descending("createdAt")),
+                new IndexOptions().name("idx_log_user_created"));
+        c.createIndex(Indexes.compoundIndex(Indexes.ascending("meta.path"), Indexes.descending("createdAt")),
+                new IndexOptions().name("idx_log_path_created"));
+    }
+
+
+    private static Document toDocument(AuditPipeline.AuditRecord r) {
+        ActionLog l = r.log();
+        Document meta = new Document();
+        putIfSet(meta, "username", l.getUsername());
+        putIfSet(meta, "path", l.getPath());
+
+        Document d = new Document("createdAt", Date.from(r.createdAt())).append("meta", meta);
+        putIfSet(d, "method", l.getMethod());
+        putIfSet(d, "ip", l.getIp());
+        putIfSet(d, "userAgent", l.getUserAgent());
+        d.append("status", l.getStatus());
+        d.append("success", l.isSuccess());
+        putIfSet(d, "errorMessage", l.getErrorMessage());
+        putIfSet(d, "msg", l.getMsg());
+        putIfSet(d, "durationMicros", l.getDurationMicros());
+        return d;
+    }
+
+
+    private static void putIfSet(Document d, String key, Object value) {
+        if (value != null) d.append(key, value);
+    }
+}
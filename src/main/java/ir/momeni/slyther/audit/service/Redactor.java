@@ -0,0 +1,104 @@
+package ir.momeni.slyther.audit.service;
+
+import ir.momeni.slyther.config.AppProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+
+/**
+ * Removes secrets from audit text (request summaries, error bodies) in a single pass.
+ * <p>
+ * Rules come from {@code app.audit.redaction.rules}. Each rule is a regex whose first
+ * capturing group is the secret: the group is replaced by {@code ***}, the rest of the match
+ * (the key, e.g. {@code "password":"}) is kept. All rules are compiled once into one
+ * alternation, so the text is scanned once whatever the number of rules.
+ * <p>
+ * Performance:
+ * - Each thread reuses its own {@link Matcher}; text without a match is returned as is,
+ *   without allocating.
+ * - Matched text is rebuilt once, into a single StringBuilder.
+ * <p>
+ * Callers should redact before truncating, so a cut never leaves half a secret unmatched.
+ */
+@Component
+public class Redactor {
+
+    private static final String MASK = "***";
+
+    private final Pattern pattern;
+
+    /** Group of each rule's secret in the combined pattern, by rule index. */
+    private final int[] secretGroups;
+
+    /** Group wrapping each rule in the combined pattern, by rule index. */
+    private final int[] ruleGroups;
+
+    private final ThreadLocal<Matcher> matchers;
+
+    @Autowired
+    public Redactor(AppProperties props) {
+        this(props.getAudit().getRedaction().getRules());
+    }
+
+
+    /**
+     * @param rules regexes with the secret in capturing group 1
+     * @throws IllegalArgumentException if a rule does not compile or has no capturing group
+     */
+    public Redactor(List<String> rules) {
+        StringBuilder combined = new StringBuilder();
+        this.ruleGroups = new int[rules.size()];
+        this.secretGroups = new int[rules.size()];
+        int group = 1;
+        for (int i = 0; i < rules.size(); i++) {
+            String rule = rules.get(i);
+            int groups = Pattern.compile(rule).matcher("").groupCount();
+            if (groups < 1) throw new IllegalArgumentException("Redaction rule #" + i + " has no capturing group: " + rule);
+            if (i > 0) combined.append('|');
+            combined.append('(').append(rule).append(')');
+            ruleGroups[i] = group;
+            secretGroups[i] = group + 1;
+            group += groups + 1;
+        }
+        this.pattern = Pattern.compile(rules.isEmpty() ? "(?!)" : combined.toString());
+        this.matchers = ThreadLocal.withInitial(() -> pattern.matcher(""));
+    }
+
+
+    /**
+     * @param text text to clean (may be null)
+     * @return the text with every secret replaced by {@code ***}; the same instance if nothing matched
+     */
+    public String redact(String text) {
+        if (text == null || text.isEmpty()) return text;
+        Matcher m = matchers.get().reset(text);
+        try {
+            if (!m.find()) return text;
+
+            StringBuilder sb = new StringBuilder(text.length());
+            int last = 0;
+            do {
+                int g = secretGroup(m);
+                if (g < 0 || m.start(g) < 0) continue;
+                sb.append(text, last, m.start(g)).append(MASK);
+                last = m.end(g);
+            } while (m.find());
+            return sb.append(text, last, text.length()).toString();
+        } finally {
+            m.reset("");    // do not keep the text reachable from the thread
+        }
+    }
+
+
+    /** Finds which rule matched and returns its secret group. */
+    private int secretGroup(Matcher m) {
+        for (int i = 0; i < ruleGroups.length; i++) {
+            if (m.start(ruleGroups[i]) >= 0) return secretGroups[i];
+        }
+        return -1;
+    }
+}
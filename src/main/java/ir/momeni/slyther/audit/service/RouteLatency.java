@@ -0,0 +1,59 @@
+package ir.momeni.slyther.audit.service;
+
+import ir.momeni.slyther.common.util.LatencyHistogram;
+import ir.momeni.slyther.config.AppProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * In-memory request latency per route ("GET /api/users/{id}"), one {@link LatencyHistogram}
+ * each, since startup.
+ * <p>
+ * At most {@code app.audit.latency.max-routes} routes get their own histogram; later ones
+ * share {@link #OTHER}, so unmatched or crafted paths cannot grow the map without bound.
+ */
+@Component
+public class RouteLatency {
+
+    /** Key of the shared histogram for routes beyond the limit. */
+    public static final String OTHER = "(other)";
+
+    private final int maxRoutes;
+    private final Map<String, LatencyHistogram> routes = new ConcurrentHashMap<>();
+    private final LatencyHistogram other = new LatencyHistogram();
+
+    public RouteLatency(AppProperties props) {
+        this.maxRoutes = props.getAudit().getLatency().getMaxRoutes();
+    }
+
+
+    /** Records one request of a route. */
+    public void record(String route, long micros) {
+        LatencyHistogram h = routes.get(route);
+        if (h == null) {
+            h = routes.size() < maxRoutes ? routes.computeIfAbsent(route, r -> new LatencyHistogram()) : other;
+        }
+        h.record(micros);
+    }
+
+
+    /** @return snapshots by route (sorted), including {@link #OTHER} when used */
+    public Map<String, LatencyHistogram.Snapshot> snapshot() {
+        Map<String, LatencyHistogram.Snapshot> out = new TreeMap<>();
+        routes.forEach((route, h) -> out.put(route, h.snapshot()));
+        LatencyHistogram.Snapshot o = other.snapshot();
+        if (o.count() > 0) out.put(OTHER, o);
+        return out;
+    }
+
+
+    /** Clears all histograms. */
+    public void reset() {
+        routes.clear();
+        other.reset();
+    }
+}
@@ -0,0 +1,214 @@
+package ir.momeni.slyther.audit.service;
+
+import ir.momeni.slyther.common.util.LatencyHistogram;
+import ir.momeni.slyther.config.AppProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+
+
+/**
+ * Rolling traffic statistics over the last {@code app.audit.stats.window}, kept in memory and
+ * fed by the audit interceptor, so "login p99 and error rate right now" needs no query on
+ * {@code action_logs}.
+ * <p>
+ * Per route ("POST /api/auth/login") the window is a ring of {@code slots} time slots; each
+ * slot holds request counts per status class (1xx..5xx) and a {@link LatencyHistogram}.
+ * A slot is replaced by CAS when its period comes round again, so recording is lock-free
+ * and a read merges a fixed number of slots, independent of traffic.
+ * <p>
+ * Per user only a request count ring is kept. Routes beyond {@code max-routes} share
+ * {@link RouteLatency#OTHER}; users beyond {@code max-users} are not tracked until idle ones
+ * are pruned (every window).
+ */
+@Component
+public class TrafficStats {
+
+    /** Request counts of one route, by status class. */
+    public record RouteStats(String route, long requests, long[] byStatusClass, double errorRate,
+                             long mean, long p50, long p90, long p99, long max) { }
+
+    /** Requests of one user in the window. */
+    public record UserStats(String username, long requests, double perMinute) { }
+
+    /** Everything in the window; latencies in µs. */
+    public record Report(long windowSeconds, long requests, double errorRate,
+                         List<RouteStats> routes, List<UserStats> topUsers) { }
+
+    private final AppProperties.Audit.Stats cfg;
+    private final long slotMillis;
+    private final int slots;
+    private final Map<String, Ring<RouteSlot>> routes = new ConcurrentHashMap<>();
+    private final Map<String, Ring<CountSlot>> users = new ConcurrentHashMap<>();
+
+    public TrafficStats(AppProperties props) {
+        this.cfg = props.getAudit().getStats();
+        this.slots = cfg.getSlots();
+        this.slotMillis = Math.max(1, cfg.getWindow().toMillis() / slots);
+    }
+
+
+    /**
+     * Counts one finished request.
+     *
+     * @param route    method and route template
+     * @param status   response status
+     * @param micros   handling time
+     * @param username authenticated user, or null
+     */
+    public void record(String route, int status, long micros, String username) {
+        if (!cfg.isEnabled()) return;
+        long epoch = System.currentTimeMillis() / slotMillis;
+
+        Ring<RouteSlot> r = routes.get(route);
+        if (r == null) {
+            String key = routes.size() < cfg.getMaxRoutes() ? route : RouteLatency.OTHER;
+            r = routes.computeIfAbsent(key, k -> new Ring<>(slots));
+        }
+        RouteSlot s = r.slot(epoch, RouteSlot::new);
+        s.byClass.incrementAndGet(statusClass(status));
+        s.latency.record(micros);
+
+        if (username == null) return;
+        Ring<CountSlot> u = users.get(username);
+        if (u == null) {
+            if (users.size() >= cfg.getMaxUsers()) return;
+            u = users.computeIfAbsent(username, k -> new Ring<>(slots));
+        }
+        u.slot(epoch, CountSlot::new).count.increment();
+    }
+
+
+    /**
+     * @param topUsers number of busiest users to include
+     * @return the statistics of the current window, busiest routes first
+     */
+    public Report report(int topUsers) {
+        long now = System.currentTimeMillis() / slotMillis;
+        long total = 0, errors = 0;
+
+        List<RouteStats> routeStats = new ArrayList<>();
+        long[] buckets = new long[LatencyHistogram.BUCKETS];    // reused for every route
+        for (Map.Entry<String, Ring<RouteSlot>> e : routes.entrySet()) {
+            long[] byClass = new long[5];
+            Arrays.fill(buckets, 0);
+            long count = 0, sum = 0, max = 0;
+            for (RouteSlot s : e.getValue().live(now)) {
+                for (int i = 0; i < 5; i++) byClass[i] += s.byClass.get(i);
+                count += s.latency.addTo(buckets);
+                sum += s.latency.sum();
+                max = Math.max(max, s.latency.max());
+            }
+            long n = 0;
+            for (long c : byClass) n += c;
+            if (n == 0) continue;
+            long failed = byClass[3] + byClass[4];
+            total += n;
+            errors += failed;
+            var h = new LatencyHistogram.Snapshot(buckets, count, sum, max);
+            routeStats.add(new RouteStats(e.getKey(), n, byClass, (double) failed / n,
+                    h.mean(), h.percentile(0.5), h.percentile(0.9), h.percentile(0.99), h.max()));
+        }
+        routeStats.sort(Comparator.comparingLong(RouteStats::requests).reversed());
+
+        double minutes = cfg.getWindow().toMillis() / 60_000.0;
+        List<UserStats> userStats = new ArrayList<>();
+        for (Map.Entry<String, Ring<CountSlot>> e : users.entrySet()) {
+            long n = 0;
+            for (CountSlot s : e.getValue().live(now)) n += s.count.sum();
+            if (n > 0) userStats.add(new UserStats(e.getKey(), n, n / minutes));
+        }
+        userStats.sort(Comparator.comparingLong(UserStats::requests).reversed());
+        if (userStats.size() > topUsers) userStats = new ArrayList<>(userStats.subList(0, topUsers));
+
+        return new Report(cfg.getWindow().toSeconds(), total, total == 0 ? 0 : (double) errors / total,
+                routeStats, userStats);
+    }
+
+
+    /** Forgets routes and users without requests in the window, making room for new ones. */
+    @Scheduled(initialDelayString = "${app.audit.stats.window:PT5M}", fixedDelayString = "${app.audit.stats.window:PT5M}")
+    public void prune() {
+        long now = System.currentTimeMillis() / slotMillis;
+        routes.values().removeIf(r -> r.live(now).isEmpty());
+        users.values().removeIf(r -> r.live(now).isEmpty());
+    }
+
+
+    /** 0..4 for 1xx..5xx (anything else counts as 5xx). */
+    private static int statusClass(int status) {
+        int c = status / 100 - 1;
+        return c >= 0 && c < 5 ? c : 4;
+    }
+
+
+    /** Ring of time slots; a slot is valid while its epoch is within the window. */
+    private static final class Ring<S extends Slot> {
+
+        private final AtomicReferenceArray<S> slots;
+
+        Ring(int size) {
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+
+        /** The slot of an epoch, replacing the stale one it reuses. */
+        S slot(long epoch, LongFunction<S> factory) {
+            int i = (int) Math.floorMod(epoch, (long) slots.length());
+            S s = slots.get(i);
+            while (s == null || s.epoch < epoch) {
+                S fresh = factory.apply(epoch);
+                if (slots.compareAndSet(i, s, fresh)) return fresh;
+                s = slots.get(i);
+            }
+            return s;
+        }
+
+        /** Slots of the last {@code size} epochs up to {@code now}. */
+        List<S> live(long now) {
+            List<S> out = new ArrayList<>(slots.length());
+            for (int i = 0; i < slots.length(); i++) {
+                S s = slots.get(i);
+                if (s != null && s.epoch > now - slots.length() && s.epoch <= now) out.add(s);
+            }
+            return out;
+        }
+    }
+
+
+    private abstract static class Slot {
+        final long epoch;
+
+        Slot(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+
+
+    private static final class RouteSlot extends Slot {
+        final AtomicLongArray byClass = new AtomicLongArray(5);
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        RouteSlot(long epoch) {
+            super(epoch);
+        }
+    }
+
+
+    private static final class CountSlot extends Slot {
+        final LongAdder count = new LongAdder();
+
+        CountSlot(long epoch) {
+            super(epoch);
+        }
+    }
+}
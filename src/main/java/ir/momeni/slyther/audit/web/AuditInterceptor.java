@@ -2,22 +2,65 @@ package ir.momeni.slyther.audit.web;
 
 import ir.momeni.slyther.audit.entity.ActionLog;
 import ir.momeni.slyther.audit.service.ActionLogService;
+import ir.momeni.slyther.audit.service.AuditRollup;
+import ir.momeni.slyther.audit.service.Redactor;
+import ir.momeni.slyther.audit.service.RouteLatency;
+import ir.momeni.slyther.audit.service.TrafficStats;
+import ir.momeni.slyther.config.AppProperties;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.util.ContentCachingResponseWrapper;
 
+@Slf4j
 @Component
-@RequiredArgsConstructor
 public class AuditInterceptor implements HandlerInterceptor {
 
+    // Request attribute holding the System.nanoTime() taken in preHandle
+    private static final String STARTED_AT = AuditInterceptor.class.getName() + ".startedAt";
+
     // Service responsible for persisting audit entries
     private final ActionLogService logService;
 
+    // Masks secrets in the summary and error text
+    private final Redactor redactor;
+
+    // Counts successful idempotent requests instead of writing a row for each
+    private final AuditRollup rollup;
+
+    // Per-route latency histograms (actuator "latency" endpoint)
+    private final RouteLatency latency;
+
+    // Rolling per-route and per-user counters (/api/admin/stats)
+    private final TrafficStats stats;
+
+    // Requests at least this slow also get a separate "SLOW" record
+    private final long slowMicros;
+
+    public AuditInterceptor(ActionLogService logService, Redactor redactor, AuditRollup rollup,
+                            RouteLatency latency, TrafficStats stats, AppProperties props) {
+        this.logService = logService;
+        this.redactor = redactor;
+        this.rollup = rollup;
+        this.latency = latency;
+        this.stats = stats;
+        this.slowMicros = props.getAudit().getLatency().getSlowThreshold().toNanos() / 1_000;
+    }
+
+    /**
+     * Takes the monotonic start time of the request (wall-clock time can jump).
+     */
+    @Override
+    public boolean preHandle(HttpServletRequest req, HttpServletResponse res, Object handler) {
+        req.setAttribute(STARTED_AT, System.nanoTime());
+        return true;
+    }
+
     /**
      * Called by Spring MVC after request completion (view rendered or exception thrown).
      * Builds an {@link ActionLog} from the request/response context and persists it.
@@ -38,6 +81,23 @@ public class AuditInterceptor implements HandlerInterceptor {
         String ua = req.getHeader("User-Agent");
         int status = res.getStatus();
 
+        // Elapsed time since preHandle, into the route's histogram; slow requests get an extra record
+        Object attr = req.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String template = attr != null ? attr.toString() : null;
+        Long durationMicros = null;
+        if (req.getAttribute(STARTED_AT) instanceof Long startedAt) {
+            durationMicros = (System.nanoTime() - startedAt) / 1_000;
+            String route = req.getMethod() + " " + (template != null ? template : "(unmatched)");
+            latency.record(route, durationMicros);
+            stats.record(route, status, durationMicros, username);
+            if (durationMicros >= slowMicros) slowRequest(req, template, username, ip, ua, status, durationMicros);
+        }
+
+        // Successful reads may only be counted per minute (aggregation mode, see AuditRollup)
+        if (ex == null && status < 400) {
+            if (rollup.offer(req.getMethod(), req.getRequestURI(), template, status, username)) return;
+        }
+
         // Short human-readable summary like: "GET /api/items -> 200"
         String summary = req.getMethod() + " " + req.getRequestURI() + " -> " + status;
 
@@ -49,8 +109,8 @@ public class AuditInterceptor implements HandlerInterceptor {
         } else if (status >= 400) {
 
             // Optional error message set by downstream code on the request
-            Object attr = req.getAttribute("errorMessage");
-            if (attr != null) errMsg = String.valueOf(attr);
+            Object err = req.getAttribute("errorMessage");
+            if (err != null) errMsg = String.valueOf(err);
 
             // Fallback: if the response is cached, peek at body content (e.g., error JSON/message)
             if (errMsg == null && res instanceof ContentCachingResponseWrapper w) {
@@ -64,7 +124,7 @@ public class AuditInterceptor implements HandlerInterceptor {
         }
 
 
-        // Build the audit record with masking and truncation safeguards
+        // Build the audit record with masking and truncation safeguards (mask first: a cut must not split a secret)
         ActionLog log = ActionLog.builder()
                 .username(username)
                 .method(req.getMethod())
@@ -73,14 +133,37 @@ public class AuditInterceptor implements HandlerInterceptor {
                 .userAgent(ua)
                 .status(status)
                 .success(ex == null && status < 400)        // Success when no exception and 2xx/3xx status
-                .msg(mask(summary))                         // msg is no longer empty
-                .errorMessage(mask(truncate(errMsg, 500)))  // Attempt to fill the error
+                .msg(redactor.redact(summary))                         // msg is no longer empty
+                .errorMessage(truncate(redactor.redact(errMsg), 500))  // Attempt to fill the error
+                .durationMicros(durationMicros)
                 .build();
 
-        // Persist asynchronously/synchronously depending on service impl
+        // Queued for the asynchronous batch writer; does not wait for the DB
         logService.save(log);
     }
 
+    /**
+     * Writes the separate slow-request record: method "SLOW", the route template (or the path)
+     * as path, and the timing in msg. Kept even when the request itself is rolled up.
+     */
+    private void slowRequest(HttpServletRequest req, String template, String username, String ip, String ua,
+                             int status, long durationMicros) {
+        String msg = req.getMethod() + " " + req.getRequestURI() + " took " + durationMicros / 1_000
+                + " ms (threshold " + slowMicros / 1_000 + " ms)";
+        log.warn("Slow request: {}", msg);
+        logService.save(ActionLog.builder()
+                .username(username)
+                .method("SLOW")
+                .path(truncate(template != null ? template : req.getRequestURI(), 255))
+                .ip(ip)
+                .userAgent(ua)
+                .status(status)
+                .success(status < 400)
+                .msg(truncate(redactor.redact(msg), 512))
+                .durationMicros(durationMicros)
+                .build());
+    }
+
     /**
      * Extract the first IP from X-Forwarded-For header (client's original IP).
      */
@@ -104,18 +187,4 @@ public class AuditInterceptor implements HandlerInterceptor {
         if (s == null) return null;
         return s.length() > max ? s.substring(0, max) : s;
     }
-
-    /**
-     * Mask sensitive tokens/credentials commonly appearing in logs.
-     * - password=<value> (query/form)
-     * - "password":"value" (JSON)
-     * - Authorization: Bearer <token> (headers)
-     */
-    private String mask(String msg) {
-        if (msg == null) return null;
-        msg = msg.replaceAll("(?i)password=\\S+", "password=***");
-        msg = msg.replaceAll("(?i)\"password\"\\s*:\\s*\"[^\"]*\"", "\"password\":\"***\"");
-        msg = msg.replaceAll("(?i)Authorization:\\s*Bearer\\s+\\S+", "Authorization: Bearer ***");
-        return msg;
-    }
 }
@@ -0,0 +1,50 @@
+package ir.momeni.slyther.audit.web;
+
+import ir.momeni.slyther.audit.service.RouteLatency;
+import ir.momeni.slyther.common.util.LatencyHistogram;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.DeleteOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * Actuator endpoint {@code /actuator/latency}: request latency per route since startup
+ * (or the last reset), in microseconds.
+ * <p>
+ * GET returns {@code {route: {count, mean, p50, p90, p99, p999, max}}}; DELETE resets
+ * the histograms. Admin only (see SecurityConfig).
+ */
+@Component
+@Endpoint(id = "latency")
+@RequiredArgsConstructor
+public class LatencyEndpoint {
+
+    private final RouteLatency latency;
+
+    @ReadOperation
+    public Map<String, Summary> latency() {
+        Map<String, Summary> out = new LinkedHashMap<>();
+        latency.snapshot().forEach((route, s) -> out.put(route, Summary.of(s)));
+        return out;
+    }
+
+    @DeleteOperation
+    public void reset() {
+        latency.reset();
+    }
+
+
+    /** Summary of one route, all values in µs. */
+    public record Summary(long count, long mean, long p50, long p90, long p99, long p999, long max) {
+
+        static Summary of(LatencyHistogram.Snapshot s) {
+            return new Summary(s.count(), s.mean(), s.percentile(0.5), s.percentile(0.9),
+                    s.percentile(0.99), s.percentile(0.999), s.max());
+        }
+    }
+}
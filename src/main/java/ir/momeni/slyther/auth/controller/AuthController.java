@@ -78,10 +78,12 @@ public class AuthController {
 
     /**
      * Logout a user by revoking the refresh token.
+     * If an Authorization Bearer header is sent, the access token is revoked as well.
      */
     @PostMapping("/logout")
-    public ResponseEntity<ApiResponse> logout(@RequestBody @Valid RefreshRequest req) {
-        authService.logout(req.getRefreshToken());
+    public ResponseEntity<ApiResponse> logout(@RequestBody @Valid RefreshRequest req, @RequestHeader(value = "Authorization", required = false) String authorization) {
+        String access = (authorization != null && authorization.startsWith("Bearer ")) ? authorization.substring(7) : null;
+        authService.logout(req.getRefreshToken(), access);
         return ResponseEntity.ok(new ApiResponse(true, "Successfully logged out"));
     }
 
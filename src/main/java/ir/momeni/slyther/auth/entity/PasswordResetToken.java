@@ -23,7 +23,7 @@ import java.time.Instant;
 @Table(
         name = "password_reset_tokens",
         indexes = {
-                @Index(name = "idx_prt_hash", columnList = "token_hash", unique = true),
+                @Index(name = "idx_prt_token_hash", columnList = "token_hash", unique = true),
                 @Index(name = "idx_prt_user", columnList = "user_id")
         }
 )
@@ -39,9 +39,9 @@ public class PasswordResetToken extends BaseEntity {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
 
-    /** Hashed reset token (SHA-256). Raw token is only shown to the user once. */
-    @Column(name = "token_hash", nullable = false, unique = true, length = 64)
-    private String tokenHash;
+    /** Raw SHA-256 digest of the reset token. Raw token is only shown to the user once. */
+    @Column(name = "token_hash", nullable = false, unique = true, length = 32, columnDefinition = "BINARY(32)")
+    private byte[] tokenHash;
 
     /** When the token expires and becomes invalid for resetting password. */
     @Column(name = "expires_at", nullable = false)
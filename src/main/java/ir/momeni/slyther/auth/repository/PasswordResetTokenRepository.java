@@ -15,8 +15,8 @@ public interface PasswordResetTokenRepository extends JpaRepository<PasswordRese
     /**
      * Finds a password reset token record by its stored hashed value.
      *
-     * @param tokenHash SHA-256 hash of the raw reset token
+     * @param tokenHash 32-byte SHA-256 digest of the raw reset token
      * @return an {@link Optional} containing the matching token if found
      */
-    Optional<PasswordResetToken> findByTokenHash(String tokenHash);
+    Optional<PasswordResetToken> findByTokenHash(byte[] tokenHash);
 }
@@ -5,10 +5,14 @@ import ir.momeni.slyther.auth.dto.LoginRequest;
 import ir.momeni.slyther.auth.dto.RefreshRequest;
 import ir.momeni.slyther.auth.dto.RegisterRequest;
 import ir.momeni.slyther.auth.dto.TokenResponse;
+import ir.momeni.slyther.common.util.HashUtils;
 import ir.momeni.slyther.config.AppProperties;
+import ir.momeni.slyther.revocation.service.TokenRevocationService;
 import ir.momeni.slyther.role.entity.Role;
 import ir.momeni.slyther.role.repository.RoleRepository;
 import ir.momeni.slyther.security.JwtService;
+import ir.momeni.slyther.security.TokenClaims;
+import ir.momeni.slyther.security.TokenMinter;
 import ir.momeni.slyther.session.entity.Session;
 import ir.momeni.slyther.session.service.SessionService;
 import ir.momeni.slyther.user.entity.User;
@@ -24,7 +28,6 @@ import org.springframework.stereotype.Service;
 import java.time.Instant;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
 import java.util.regex.Pattern;
 
 
@@ -53,6 +56,8 @@ public class AuthService {
     private final SessionService sessionService;
     private final AppProperties props;
     private final ActionLogService logService;
+    private final TokenRevocationService revocations;
+    private final TokenMinter minter;
 
 
     /**
@@ -103,15 +108,13 @@ public class AuthService {
 
             User u = (User) auth.getPrincipal();
 
-            Map<String, Object> claims = Map.of("roles", u.getAuthorities().stream().map(Object::toString).toList());
-
-            // Generate access token
-            String access = jwtService.generateAccessToken(u.getUsername(), claims);
+            // Generate access token (compact claim profile: user id + role codes)
+            String access = jwtService.generateAccessToken(u.getUsername(), TokenClaims.of(u));
 
             // Generate and hash refresh token
-            String refresh = UUID.randomUUID() + "-" + UUID.randomUUID();
-            String refreshHash = ir.momeni.slyther.common.util.HashUtils.sha256Hex(refresh);
-            if (refreshHash == null || refreshHash.isBlank()) {
+            String refresh = minter.mint(TokenMinter.Kind.REFRESH);
+            byte[] refreshHash = HashUtils.sha256(refresh);
+            if (refreshHash == null || refreshHash.length != HashUtils.SHA256_LENGTH) {
                 throw new AuthenticationServiceException("refreshTokenHash is null/blank");
             }
 
@@ -142,29 +145,22 @@ public class AuthService {
      * Rotates refresh token and issues a new access token
      * using the ROTATE-ON-USE security model:
      *
-     * - Validate and revoke old session
-     * - Create a new replacement refresh token session
+     * - Atomically revoke the old session and create its replacement (one transaction)
      * - Issue a fresh JWT access token
      */
     public TokenResponse refresh(RefreshRequest req) {
-        var oldSession = sessionService.validateActiveRawToken(req.getRefreshToken());
-
-        var u = oldSession.getUser();
-
-        // Security: Rotating refresh tokens prevents reuse
-        sessionService.revokeRawToken(req.getRefreshToken());
-
-        String newRefresh = UUID.randomUUID() + "-" + UUID.randomUUID();
-        String newHash = ir.momeni.slyther.common.util.HashUtils.sha256Hex(newRefresh);
+        String newRefresh = minter.mint(TokenMinter.Kind.REFRESH);
+        byte[] newHash = HashUtils.sha256(newRefresh);
         Instant exp = Instant.now().plusSeconds(props.getSecurity().getJwt().getRefreshExpDays() * 86400L);
 
-        sessionService.create(Session.builder().user(u).refreshTokenHash(newHash).expiresAt(exp).userAgent(oldSession.getUserAgent()).ipAddress(oldSession.getIpAddress()).build());
+        // Security: Rotating refresh tokens prevents reuse (a token rotates at most once)
+        Session session = sessionService.rotate(req.getRefreshToken(), newHash, exp);
+        User u = session.getUser();
 
-        Map<String, Object> claims = Map.of("roles", u.getAuthorities().stream().map(Object::toString).toList());
-        String access = jwtService.generateAccessToken(u.getUsername(), claims);
+        String access = jwtService.generateAccessToken(u.getUsername(), TokenClaims.of(u));
 
         // Audit entry
-        logService.info("Token refreshed", "/api/auth/refresh", u.getUsername(), oldSession.getIpAddress());
+        logService.info("Token refreshed", "/api/auth/refresh", u.getUsername(), session.getIpAddress());
 
         return TokenResponse.builder().tokenType("Bearer").accessToken(access).refreshToken(newRefresh).expiresInSeconds(props.getSecurity().getJwt().getAccessExpMins() * 60L).build();
     }
@@ -172,9 +168,21 @@ public class AuthService {
 
     /**
      * Revokes refresh token session, effectively logging user out.
+     * When the current access token is supplied, it is put on the denylist until its expiry.
+     *
+     * @param refreshToken raw refresh token of the session
+     * @param accessToken  raw access token (may be null); invalid tokens are ignored
      */
-    public void logout(String refreshToken) {
+    public void logout(String refreshToken, String accessToken) {
         sessionService.revokeRawToken(refreshToken);
+        if (accessToken != null) {
+            try {
+                var claims = jwtService.parse(accessToken).getBody();
+                revocations.revoke(claims.getId(), claims.getExpiration().toInstant());
+            } catch (io.jsonwebtoken.JwtException | IllegalArgumentException ignored) {
+                // Expired or invalid access token: nothing left to revoke
+            }
+        }
         logService.info("Logged out", "/api/auth/logout", null, null);
     }
 }
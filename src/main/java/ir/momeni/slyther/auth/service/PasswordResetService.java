@@ -5,15 +5,16 @@ import ir.momeni.slyther.auth.dto.ResetPasswordRequest;
 import ir.momeni.slyther.auth.entity.PasswordResetToken;
 import ir.momeni.slyther.auth.repository.PasswordResetTokenRepository;
 import ir.momeni.slyther.common.util.HashUtils;
+import ir.momeni.slyther.security.TokenMinter;
 import ir.momeni.slyther.user.entity.User;
 import ir.momeni.slyther.user.repository.UserRepository;
+import ir.momeni.slyther.user.service.UserCache;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
-import java.util.UUID;
 import java.util.regex.Pattern;
 
 
@@ -33,6 +34,8 @@ public class PasswordResetService {
     private final UserRepository userRepo;
     private final PasswordResetTokenRepository prtRepo;
     private final PasswordEncoder encoder;
+    private final UserCache userCache;
+    private final TokenMinter minter;
 
 
     /** Basic password strength rule: ≥8 chars, upper/lowercase + digits required. */
@@ -53,8 +56,8 @@ public class PasswordResetService {
                 .orElseThrow(() -> new IllegalArgumentException("User not found"));
 
         // Create a secure random reset token
-        String token = UUID.randomUUID().toString() + "-" + UUID.randomUUID();
-        String hash = HashUtils.sha256Hex(token);
+        String token = minter.mint(TokenMinter.Kind.PASSWORD_RESET);
+        byte[] hash = HashUtils.sha256(token);
         Instant exp = Instant.now().plusSeconds(15 * 60);
 
         // Store hashed token bound to the user
@@ -81,7 +84,7 @@ public class PasswordResetService {
         if (!STRONG_PWD.matcher(req.getNewPassword()).matches()) {
             throw new IllegalArgumentException("Password too weak");
         }
-        String hash = HashUtils.sha256Hex(req.getToken());
+        byte[] hash = HashUtils.sha256(req.getToken());
         var prt = prtRepo.findByTokenHash(hash)
                 .orElseThrow(() -> new IllegalArgumentException("Invalid token"));
         if (!prt.isActive()) throw new IllegalStateException("Token expired/used");
@@ -94,5 +97,8 @@ public class PasswordResetService {
 
         userRepo.save(u);
         prtRepo.save(prt);
+
+        // The cached principal still holds the old password hash
+        userCache.evict(u.getUsername());
     }
 }
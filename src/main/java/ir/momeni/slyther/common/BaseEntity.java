@@ -13,21 +13,34 @@ import java.time.Instant;
  * <p>
  * All entities extending this class inherit:
  * <ul>
- *     <li>{@code id} — Primary key autogenerated by the database</li>
+ *     <li>{@code id} — Primary key from the shared {@code entity_id_seq} sequence</li>
  *     <li>{@code createdAt} — Timestamp stored once upon insertion</li>
  *     <li>{@code updatedAt} — Automatically updated on every change</li>
  * </ul>
  * <p>
+ * Ids come from one pooled sequence: each {@code nextval} reserves a block of
+ * {@value #ID_BLOCK} ids, so inserts need no round-trip per row and Hibernate can batch them
+ * (IDENTITY would force one INSERT per statement). Rows written with plain JDBC take ids
+ * from {@link ir.momeni.slyther.common.db.SequenceIdAllocator}.
+ * <p>
  * This class should NOT be registered as its own table since it uses {@link MappedSuperclass}.
  */
 @MappedSuperclass
 @Getter
 public abstract class BaseEntity {
+
+    /** Sequence shared by all entity tables (created by the V10 migration). */
+    public static final String ID_SEQUENCE = "entity_id_seq";
+
+    /** Ids reserved per sequence call; must equal the sequence's INCREMENT BY. */
+    public static final int ID_BLOCK = 100;
+
     /**
-     * Primary key generated by the database using identity strategy.
+     * Primary key from the pooled {@value #ID_SEQUENCE} sequence.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = ID_SEQUENCE)
+    @SequenceGenerator(name = ID_SEQUENCE, sequenceName = ID_SEQUENCE, allocationSize = ID_BLOCK)
     private Long id;
 
 
@@ -24,6 +24,7 @@ import java.util.stream.Collectors;
  *   <li>Authorization failures</li>
  *   <li>Validation errors</li>
  *   <li>Client-side mistakes (Bad Request)</li>
+ *   <li>Load shedding (Service Unavailable + Retry-After)</li>
  *   <li>Unhandled server errors</li>
  * </ul>
  * <p>
@@ -34,7 +35,9 @@ import java.util.stream.Collectors;
  */
 @RestControllerAdvice(basePackages = {
         "ir.momeni.slyther.auth.controller",
+        "ir.momeni.slyther.audit.controller",
         "ir.momeni.slyther.user.controller",
+        "ir.momeni.slyther.session.controller",
         "ir.momeni.slyther.test.controller"
 })
 @Order(Ordered.LOWEST_PRECEDENCE)
@@ -75,6 +78,18 @@ public class GlobalExceptionHandler {
     }
 
 
+    /**
+     * Handles load shedding (e.g. saturated password hashing): 503 with Retry-After in seconds.
+     */
+    @ExceptionHandler(ServiceBusyException.class)
+    public ResponseEntity<ApiError> handleBusy(ServiceBusyException ex, HttpServletRequest req) {
+        ResponseEntity<ApiError> res = build(HttpStatus.SERVICE_UNAVAILABLE, "Service busy", ex.getMessage(), req, null);
+        return ResponseEntity.status(res.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, ex.getRetryAfter().toSeconds())))
+                .body(res.getBody());
+    }
+
+
     /**
      * Handles common client-side exceptions thrown in service logic.
      */
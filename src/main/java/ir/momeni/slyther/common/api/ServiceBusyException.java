@@ -0,0 +1,22 @@
+package ir.momeni.slyther.common.api;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+
+/**
+ * Thrown when a bounded resource (e.g. the password hashing executor) sheds load.
+ * Mapped to 503 Service Unavailable with a {@code Retry-After} header.
+ */
+@Getter
+public class ServiceBusyException extends RuntimeException {
+
+    /** Suggested client back-off */
+    private final Duration retryAfter;
+
+    public ServiceBusyException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,92 @@
+package ir.momeni.slyther.common.db;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+
+
+/**
+ * The database products we run on, with the few SQL fragments that differ between them.
+ * <p>
+ * Detected from JDBC metadata, so the same code works under the "mysql" (MariaDB)
+ * and "postgres" profiles.
+ */
+public enum DatabaseVendor {
+
+    MARIADB {
+        @Override
+        public String nextValSql(String sequence) {
+            return "SELECT NEXTVAL(" + sequence + ")";
+        }
+
+        @Override
+        public String upsertAddSql(String table, String counter, String[] keys, String... columns) {
+            return insert(table, counter, keys, columns) + " ON DUPLICATE KEY UPDATE " + counter + " = " + counter + " + VALUES(" + counter + ")";
+        }
+    },
+
+    POSTGRESQL {
+        @Override
+        public String nextValSql(String sequence) {
+            return "SELECT nextval('" + sequence + "')";
+        }
+
+        @Override
+        public String upsertAddSql(String table, String counter, String[] keys, String... columns) {
+            return insert(table, counter, keys, columns) + " ON CONFLICT (" + String.join(", ", keys) + ") DO UPDATE SET "
+                    + counter + " = " + table + "." + counter + " + EXCLUDED." + counter;
+        }
+    };
+
+
+    /**
+     * @param sequence sequence name (trusted, not user input)
+     * @return a query returning the next value of the sequence as a single row/column
+     */
+    public abstract String nextValSql(String sequence);
+
+
+    /**
+     * Single-statement "insert or add": binds {@code keys...} then {@code counter}; when a row with
+     * the same keys (the primary key) exists, the counter is added to it instead.
+     *
+     * @param table   table name (trusted)
+     * @param counter numeric column to add to
+     * @param keys    primary key columns
+     */
+    public String upsertAddSql(String table, String counter, String... keys) {
+        return upsertAddSql(table, counter, keys, new String[0]);
+    }
+
+
+    /**
+     * Like {@link #upsertAddSql(String, String, String...)} with further columns that are only
+     * set on insert: binds {@code keys...}, then {@code columns...}, then {@code counter}.
+     *
+     * @param table   table name (trusted)
+     * @param counter numeric column to add to
+     * @param keys    primary key columns
+     * @param columns columns written by the insert and left alone by the update
+     */
+    public abstract String upsertAddSql(String table, String counter, String[] keys, String... columns);
+
+
+    private static String insert(String table, String counter, String[] keys, String[] columns) {
+        int n = keys.length + columns.length;
+        String names = String.join(", ", keys) + (columns.length > 0 ? ", " + String.join(", ", columns) : "");
+        return "INSERT INTO " + table + " (" + names + ", " + counter + ") VALUES (" + "?, ".repeat(n) + "?)";
+    }
+
+
+    /**
+     * Detects the vendor of an open connection.
+     *
+     * @throws IllegalStateException for unsupported databases
+     */
+    public static DatabaseVendor of(Connection connection) throws SQLException {
+        String product = connection.getMetaData().getDatabaseProductName().toLowerCase(Locale.ROOT);
+        if (product.contains("postgres")) return POSTGRESQL;
+        if (product.contains("mariadb") || product.contains("mysql")) return MARIADB;
+        throw new IllegalStateException("Unsupported database: " + product);
+    }
+}
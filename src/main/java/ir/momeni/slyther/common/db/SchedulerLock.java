@@ -0,0 +1,65 @@
+package ir.momeni.slyther.common.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+
+/**
+ * Database-backed leader lock for scheduled jobs, so a job runs on one node at a time
+ * (table {@code scheduler_locks}, migration V15).
+ * <p>
+ * A lock is a lease: {@link #tryLock} takes it when it is free or its lease ran out, with one
+ * conditional UPDATE (or the first INSERT of the row); {@link #unlock} ends the lease early.
+ * A node that dies while holding a lock blocks the job only until the lease expires, so the
+ * lease must exceed the job's run time. Times are UTC; node clocks are assumed roughly in sync.
+ */
+@Slf4j
+@Component
+public class SchedulerLock {
+
+    private final JdbcTemplate jdbc;
+
+    /** This node's identity, e.g. "1234@host/3f2a9c1e". */
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/"
+            + UUID.randomUUID().toString().substring(0, 8);
+
+    public SchedulerLock(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+
+    /**
+     * @param name  job name
+     * @param lease how long the lock is held at most
+     * @return true if this node now holds the lock
+     */
+    public boolean tryLock(String name, Duration lease) {
+        LocalDateTime now = LocalDateTime.now(ZoneOffset.UTC);
+        LocalDateTime until = now.plus(lease);
+        int n = jdbc.update("UPDATE scheduler_locks SET locked_until = ?, locked_at = ?, locked_by = ? "
+                + "WHERE name = ? AND locked_until <= ?", until, now, owner, name, now);
+        if (n == 1) return true;
+        try {
+            jdbc.update("INSERT INTO scheduler_locks (name, locked_until, locked_at, locked_by) VALUES (?, ?, ?, ?)",
+                    name, until, now, owner);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;   // held by another node
+        }
+    }
+
+
+    /** Releases a lock held by this node (no-op otherwise). */
+    public void unlock(String name) {
+        jdbc.update("UPDATE scheduler_locks SET locked_until = ? WHERE name = ? AND locked_by = ?",
+                LocalDateTime.now(ZoneOffset.UTC), name, owner);
+    }
+}
@@ -0,0 +1,59 @@
+package ir.momeni.slyther.common.db;
+
+import ir.momeni.slyther.common.BaseEntity;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Hands out entity ids from {@value BaseEntity#ID_SEQUENCE} for rows inserted with plain JDBC
+ * (e.g., the audit pipeline), using the same pooled scheme as Hibernate:
+ * each {@code nextval} reserves the block {@code (value - }{@value BaseEntity#ID_BLOCK}{@code , value]}.
+ * <p>
+ * One sequence round-trip per {@value BaseEntity#ID_BLOCK} ids; blocks never overlap with
+ * the ones Hibernate reserves, so JDBC and JPA inserts can share a table.
+ */
+@Component
+public class SequenceIdAllocator {
+
+    private final JdbcTemplate jdbc;
+    private volatile String nextValSql;
+
+    private long next = 1;
+    private long hi = 0;
+
+    public SequenceIdAllocator(JdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+
+    /** @return a fresh id */
+    public synchronized long nextId() {
+        if (next > hi) {
+            hi = fetchNextValue();
+            next = hi - BaseEntity.ID_BLOCK + 1;
+        }
+        return next++;
+    }
+
+
+    /**
+     * Fills {@code ids[0..count)} with fresh ids (one lock acquisition for the whole batch).
+     */
+    public synchronized void nextIds(long[] ids, int count) {
+        for (int i = 0; i < count; i++) ids[i] = nextId();
+    }
+
+
+    private long fetchNextValue() {
+        String sql = nextValSql;
+        if (sql == null) {
+            sql = jdbc.execute((ConnectionCallback<String>) c -> DatabaseVendor.of(c).nextValSql(BaseEntity.ID_SEQUENCE));
+            nextValSql = sql;
+        }
+        Long value = jdbc.queryForObject(sql, Long.class);
+        if (value == null) throw new IllegalStateException("Sequence " + BaseEntity.ID_SEQUENCE + " returned no value");
+        return value;
+    }
+}
@@ -0,0 +1,89 @@
+package ir.momeni.slyther.common.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * Fixed-size, thread-safe Bloom filter over strings.
+ * <p>
+ * Properties:
+ * - {@link #mightContain(String)} never returns false for an added value (no false negatives).
+ * - False positives happen at roughly the configured rate while the filter holds at most
+ *   {@code expectedInsertions} values; callers must confirm positives with an exact lookup.
+ * - Values cannot be removed; build a new filter to drop them.
+ * <p>
+ * Uses a 64-bit FNV-1a hash split into two halves (Kirsch–Mitzenmacher double hashing),
+ * computed directly over the string's chars, so lookups do not allocate.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+
+    /**
+     * @param expectedInsertions  number of values the filter is sized for
+     * @param falsePositiveRate   target false-positive probability (e.g., 0.001)
+     */
+    public BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        int n = Math.max(1, expectedInsertions);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.max(1, (m + 63) >>> 6);
+        this.bits = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+
+    /** Adds a value to the filter. */
+    public void put(String value) {
+        long h = hash(value);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long cur;
+            while (((cur = bits.get(word)) & mask) == 0) {
+                if (bits.compareAndSet(word, cur, cur | mask)) break;
+            }
+        }
+    }
+
+
+    /**
+     * @return false if the value was definitely never added; true if it may have been
+     */
+    public boolean mightContain(String value) {
+        long h = hash(value);
+        int h1 = (int) h;
+        int h2 = (int) (h >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            long bit = index(h1 + i * h2);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+
+    private long index(int combined) {
+        return (combined & 0x7fffffffL) % bitCount;
+    }
+
+
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0, n = value.length(); i < n; i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        // Final avalanche so both 32-bit halves are well mixed
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -2,6 +2,7 @@ package ir.momeni.slyther.common.util;
 
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 
 /**
@@ -9,16 +10,70 @@ import java.security.MessageDigest;
  * <p>
  * Currently provides:
  * <ul>
+ *     <li>SHA-256 hash generation as raw 32-byte digests (the form stored in BINARY(32) columns)</li>
  *     <li>SHA-256 hash generation with hexadecimal output</li>
  * </ul>
  * <p>
+ * Digests are computed with one {@link MessageDigest} per thread instead of a
+ * {@code MessageDigest.getInstance} lookup per call, and ASCII input (all our tokens)
+ * is fed to it through a per-thread scratch buffer, so hashing only allocates the result.
+ * <p>
  * Usage example:
  * <pre>
+ *     byte[] digest = HashUtils.sha256("my-secret");
  *     String hash = HashUtils.sha256Hex("my-secret");
  * </pre>
  */
 public class HashUtils {
 
+    /** Length of a SHA-256 digest in bytes. */
+    public static final int SHA256_LENGTH = 32;
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /** Scratch buffer size; longer or non-ASCII inputs fall back to {@link String#getBytes}. */
+    private static final int SCRATCH_SIZE = 256;
+
+    private static final ThreadLocal<MessageDigest> SHA256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Should never happen on a standard Java runtime
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    });
+
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[SCRATCH_SIZE]);
+
+
+    /**
+     * Hashes a given input string (UTF-8) using SHA-256.
+     *
+     * @param input the string to hash; must not be null
+     * @return the 32-byte SHA-256 digest
+     * @throws IllegalStateException if SHA-256 is not supported (extremely rare on JVM)
+     */
+    public static byte[] sha256(String input) {
+        MessageDigest md = SHA256.get();
+        int n = input.length();
+        if (n <= SCRATCH_SIZE) {
+            byte[] buf = SCRATCH.get();
+            int i = 0;
+            for (; i < n; i++) {
+                char c = input.charAt(i);
+                if (c >= 0x80) break;
+                buf[i] = (byte) c;
+            }
+            if (i == n) {
+                md.update(buf, 0, n);
+                return md.digest();
+            }
+        }
+        // Non-ASCII or long input: let the JDK do the UTF-8 encoding
+        return md.digest(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+
     /**
      * Hashes a given input string using SHA-256 and returns a lowercase hexadecimal string.
      *
@@ -27,21 +82,23 @@ public class HashUtils {
      * @throws IllegalStateException if SHA-256 is not supported (extremely rare on JVM)
      */
     public static String sha256Hex(String input) {
-        try {
-
-            // Initialize SHA-256 message digest
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+        return toHex(sha256(input));
+    }
 
-            // Convert input string to UTF-8 bytes and compute hash
-            byte[] d = md.digest(input.getBytes(StandardCharsets.UTF_8));
 
-            // Convert byte array into lowercase hex string
-            StringBuilder sb = new StringBuilder(d.length * 2);
-            for (byte b : d) sb.append(String.format("%02x", b));
-            return sb.toString();
-        } catch (Exception e) {
-            // Should never happen on a standard Java runtime
-            throw new IllegalStateException("SHA-256 not available", e);
+    /**
+     * Encodes bytes as a lowercase hexadecimal string.
+     *
+     * @param bytes the bytes to encode
+     * @return hex string of length {@code 2 * bytes.length}
+     */
+    public static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xff;
+            out[j++] = HEX[b >>> 4];
+            out[j++] = HEX[b & 0x0f];
         }
+        return new String(out);
     }
 }
@@ -0,0 +1,154 @@
+package ir.momeni.slyther.common.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Fixed-size, thread-safe log-linear latency histogram (HdrHistogram-style) over microseconds.
+ * <p>
+ * Layout:
+ * - values below 32 µs get one bucket each;
+ * - above that, every power of two is split into 16 linear sub-buckets, so a bucket's width
+ *   is at most 1/16 of its value (percentiles are within ~6%);
+ * - values are capped at 2^36 µs (~19 h): 528 buckets, about 4 KB.
+ * <p>
+ * {@link #record(long)} is lock-free (a few atomic adds, no allocation); readers take a
+ * {@link Snapshot}, which is consistent enough for monitoring but not an atomic cut.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int HALF = SUB >>> 1;
+    private static final long MAX_VALUE = (1L << 36) - 1;
+
+    /** Number of buckets. */
+    public static final int BUCKETS = index(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+
+    /** Records one value (negative values count as 0, huge ones as the cap). */
+    public void record(long micros) {
+        long v = Math.max(0, Math.min(micros, MAX_VALUE));
+        counts.incrementAndGet(index(v));
+        sum.add(v);
+        long m;
+        while (v > (m = max.get()) && !max.compareAndSet(m, v)) { }
+    }
+
+
+    /** @return a copy of the current counts */
+    public Snapshot snapshot() {
+        long[] c = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) n += c[i] = counts.get(i);
+        return new Snapshot(c, n, sum.sum(), max.get());
+    }
+
+
+    /**
+     * Adds the current counts to {@code into}, for merging many histograms without a
+     * {@link Snapshot} copy of each.
+     *
+     * @param into per-bucket totals, length {@link #BUCKETS}
+     * @return number of values added
+     */
+    public long addTo(long[] into) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            into[i] += c;
+            n += c;
+        }
+        return n;
+    }
+
+
+    /** @return sum of the recorded values (µs) */
+    public long sum() {
+        return sum.sum();
+    }
+
+
+    /** @return largest recorded value (µs) */
+    public long max() {
+        return max.get();
+    }
+
+
+    /** Clears all counts (racing records may survive or be lost). */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        sum.reset();
+        max.set(0);
+    }
+
+
+    /** Bucket of a value in [0, 2^36). */
+    static int index(long v) {
+        if (v < SUB) return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - (SUB_BITS - 1);
+        return shift * HALF + (int) (v >>> shift);
+    }
+
+
+    /** Highest value that falls into a bucket. */
+    static long upperBound(int index) {
+        if (index < SUB) return index;
+        int shift = index / HALF - 1;
+        long lower = (long) (index - shift * HALF) << shift;
+        return lower + (1L << shift) - 1;
+    }
+
+
+    /**
+     * Point-in-time copy of a histogram.
+     *
+     * @param counts per-bucket counts
+     * @param count  total number of values
+     * @param sum    sum of the values (µs)
+     * @param max    largest value (µs)
+     */
+    public record Snapshot(long[] counts, long count, long sum, long max) {
+
+        /** An empty snapshot, the identity of {@link #merge}. */
+        public static Snapshot empty() {
+            return new Snapshot(new long[BUCKETS], 0, 0, 0);
+        }
+
+
+        /** @return the combined distribution of both snapshots */
+        public Snapshot merge(Snapshot other) {
+            long[] c = counts.clone();
+            for (int i = 0; i < BUCKETS; i++) c[i] += other.counts[i];
+            return new Snapshot(c, count + other.count, sum + other.sum, Math.max(max, other.max));
+        }
+
+
+        /** @return mean in µs, or 0 when empty */
+        public long mean() {
+            return count == 0 ? 0 : sum / count;
+        }
+
+
+        /**
+         * @param q quantile in [0, 1], e.g. 0.99
+         * @return upper bound of the bucket holding the q-quantile (µs), capped at max; 0 when empty
+         */
+        public long percentile(double q) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+    }
+}
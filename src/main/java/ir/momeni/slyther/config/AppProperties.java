@@ -2,6 +2,9 @@ package ir.momeni.slyther.config;
 
 import lombok.Getter; import lombok.Setter;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 
 
@@ -14,6 +17,7 @@ import java.util.List;
  * Groups:
  *  - Security settings (JWT + rate-limiting)
  *  - CORS settings
+ *  - Audit pipeline settings
  */
 @Getter @Setter
 @ConfigurationProperties(prefix = "app")
@@ -25,6 +29,9 @@ public class AppProperties {
     /** CORS policy configuration */
     private Cors cors = new Cors();
 
+    /** Audit log write pipeline */
+    private Audit audit = new Audit();
+
 
 
     /**
@@ -39,6 +46,18 @@ public class AppProperties {
         /** API rate-limit configuration for selected endpoints */
         private RateLimit ratelimit = new RateLimit();
 
+        /** In-process cache of user principals */
+        private UserCache userCache = new UserCache();
+
+        /** Access-token revocation (denylist) settings */
+        private Revocation revocation = new Revocation();
+
+        /** Password hashing (work factor, executor) settings */
+        private Password password = new Password();
+
+        /** Purge of dead sessions and reset tokens */
+        private Reaper reaper = new Reaper();
+
 
         /**
          * JWT token configuration.
@@ -49,6 +68,12 @@ public class AppProperties {
             /** Issuer name included in JWT payload */
             private String issuer;
 
+            /**
+             * Signature algorithm: HS256 (shared secret, default) or ES256 (asymmetric key ring).
+             * Switching invalidates every access token already issued (see README).
+             */
+            private String algorithm = "HS256";
+
             /** Secret key used for HS256 token signature */
             private String secret;
 
@@ -57,33 +82,216 @@ public class AppProperties {
 
             /** Refresh token lifetime (days) */
             private long refreshExpDays;
+
+            /**
+             * Claims-only (stateless) authentication: build the principal and authorities
+             * from the verified token claims instead of loading the user from the DB.
+             * Tokens missing the compact claims fall back to the DB lookup.
+             */
+            private boolean claimsOnly = false;
+
+            /** Cache of already verified access tokens */
+            private TokenCache cache = new TokenCache();
+
+            /** Asymmetric key ring / rotation settings (ES256 mode) */
+            private Keys keys = new Keys();
+        }
+
+        /**
+         * Asymmetric signing key rotation configuration.
+         * Configurable fields under: app.security.jwt.keys.*
+         */
+        @Getter @Setter public static class Keys {
+
+            /** How long a key stays the active signing key before the next one takes over */
+            private Duration rotationInterval = Duration.ofDays(7);
+
+            /** How long a new key is published (JWKS) before it is used for signing */
+            private Duration publishAhead = Duration.ofMinutes(15);
+
+            /** Extra time a superseded key stays verifiable beyond the access token lifetime */
+            private Duration verificationGrace = Duration.ofMinutes(5);
+
+            /** How often each node reloads the ring from the DB and checks for due rotation */
+            private Duration refreshInterval = Duration.ofMinutes(1);
+
+            /** Cache-Control max-age of the JWKS endpoint (keep below publishAhead) */
+            private Duration jwksMaxAge = Duration.ofMinutes(5);
+        }
+
+        /**
+         * Verified-token cache configuration.
+         * Configurable fields under: app.security.jwt.cache.*
+         */
+        @Getter @Setter public static class TokenCache {
+
+            /** Opt-in: cache parsed claims per token digest until the token's "exp" */
+            private boolean enabled = false;
+
+            /** Upper bound on cached tokens */
+            private int maxEntries = 10_000;
+        }
+
+        /**
+         * User principal cache configuration.
+         * Configurable fields under: app.security.user-cache.*
+         */
+        @Getter @Setter public static class UserCache {
+
+            /** Switch for the cache; when false every lookup hits the DB */
+            private boolean enabled = true;
+
+            /** Upper bound on cached users */
+            private int maxEntries = 10_000;
+
+            /** Time-to-live of a cached user (seconds) */
+            private long ttlSeconds = 60;
+
+            /** How often users changed on other nodes (users.updated_at) are evicted */
+            private Duration syncInterval = Duration.ofSeconds(5);
+        }
+
+        /**
+         * Access-token denylist configuration.
+         * Configurable fields under: app.security.revocation.*
+         */
+        @Getter @Setter public static class Revocation {
+
+            /** Number of live revocations the Bloom filter is sized for */
+            private int expectedEntries = 100_000;
+
+            /** Target Bloom filter false-positive rate (positives are confirmed exactly) */
+            private double falsePositiveRate = 0.001;
+
+            /** How often revocations made on other nodes are pulled from the DB */
+            private Duration syncInterval = Duration.ofSeconds(10);
+
+            /** How often expired revocations are pruned and the filter rebuilt */
+            private Duration pruneInterval = Duration.ofMinutes(5);
+        }
+
+        /**
+         * Password hashing: bcrypt work factor and the dedicated hashing executor.
+         * Configurable fields under: app.security.password.*
+         */
+        @Getter @Setter public static class Password {
+
+            /** Pick the bcrypt strength at startup so one hash takes about target-time */
+            private boolean calibrate = true;
+
+            /** Desired time of one hash/verification when calibrating */
+            private Duration targetTime = Duration.ofMillis(250);
+
+            /** Calibration never goes below this strength (security floor) */
+            private int minStrength = 10;
+
+            /** Calibration never goes above this strength */
+            private int maxStrength = 16;
+
+            /** Fixed bcrypt strength when calibration is off */
+            private int strength = 12;
+
+            /** Worker threads; 0 = number of CPU cores */
+            private int threads = 0;
+
+            /** Tasks waiting for a worker at most; beyond that requests are rejected (503) */
+            private int queueCapacity = 64;
+
+            /** Queued tasks older than this are dropped unrun (503) */
+            private Duration maxWait = Duration.ofSeconds(2);
+
+            /** Retry-After sent with the 503 */
+            private Duration retryAfter = Duration.ofSeconds(5);
+        }
+
+        /**
+         * Scheduled purge of expired/revoked sessions and used/expired reset tokens.
+         * Configurable fields under: app.security.reaper.*
+         */
+        @Getter @Setter public static class Reaper {
+
+            /** Whether the reaper runs */
+            private boolean enabled = true;
+
+            /** Spring cron expression of the runs */
+            private String cron = "0 15 * * * *";
+
+            /** Rows deleted per statement */
+            private int chunkSize = 500;
+
+            /** Pause between chunks */
+            private Duration pause = Duration.ofMillis(100);
+
+            /** Revoked sessions are kept this long (e.g. for investigating token reuse) */
+            private Duration keepRevoked = Duration.ofDays(7);
+
+            /** Leader lock lease; must exceed one run */
+            private Duration lockLease = Duration.ofMinutes(30);
         }
 
         /**
          * Rate limit configuration group.
-         * Defines traffic limits on login / forgot password.
+         * Defines per-route traffic limits (login / forgot password by default).
          */
         @Getter @Setter public static class RateLimit {
 
-            /** Rules for /login endpoint */
-            private Window login = new Window();
+            /** Counter backend: "memory" (node-local) or "jdbc" (shared across nodes via the DB) */
+            private String store = "memory";
+
+            /** Hard cap on tracked (route, client) keys; ~8 bytes each, allocated up front */
+            private int maxTrackedKeys = 100_000;
+
+            /** Settings of the "jdbc" store */
+            private RateLimitJdbc jdbc = new RateLimitJdbc();
+
+            /** Per-route policies; the first match wins, unmatched requests are not limited */
+            private List<Policy> policies = new ArrayList<>(List.of(
+                    Policy.of("POST", "/api/auth/login", 5, 60),
+                    Policy.of("POST", "/api/auth/forgot-password", 5, 60)));
+        }
+
+        /**
+         * Cluster-wide rate limiting through the shared database.
+         */
+        @Getter @Setter public static class RateLimitJdbc {
+
+            /** Expected number of app nodes; each node leases 1/nodes of the remaining quota */
+            private int nodes = 1;
+
+            /** How often local counts are written and leases refreshed */
+            private Duration syncInterval = Duration.ofSeconds(1);
 
-            /** Rules for /forgot-password endpoint */
-            private Window forgotPassword = new Window();
+            /** How often counters of ended windows are deleted */
+            private Duration purgeInterval = Duration.ofMinutes(5);
         }
 
         /**
-         * Defines a rate-limit time window:
-         * - max allowed requests
-         * - time period (in seconds)
+         * Defines a rate-limit policy for one route:
+         * - HTTP method and path (exact, or prefix when ending with "/**")
+         * - max allowed requests per time period (in seconds), per client IP
          */
-        @Getter @Setter public static class Window {
+        @Getter @Setter public static class Policy {
 
-            /** Maximum allowed requests per IP/client */
+            /** HTTP method the policy applies to */
+            private String method = "POST";
+
+            /** Request path, e.g. /api/auth/login or /api/auth/** */
+            private String path;
+
+            /** Maximum allowed requests per IP/client (also the burst size) */
             private int maxRequests = 5;
 
             /** Time window in seconds for request counting */
             private int windowSeconds = 60;
+
+            static Policy of(String method, String path, int maxRequests, int windowSeconds) {
+                Policy p = new Policy();
+                p.setMethod(method);
+                p.setPath(path);
+                p.setMaxRequests(maxRequests);
+                p.setWindowSeconds(windowSeconds);
+                return p;
+            }
         }
     }
 
@@ -107,4 +315,196 @@ public class AppProperties {
          */
         private List<String> allowedMethods = List.of("GET","POST","PUT","DELETE","PATCH","OPTIONS");
     }
+
+
+    /**
+     * Audit log pipeline configuration group.
+     * Configurable fields under: app.audit.*
+     */
+    @Getter @Setter
+    public static class Audit {
+
+        /** What to do with a record when the queue is full */
+        public enum Overflow { BLOCK, DROP, SPILL }
+
+        /** Size of one action_logs partition */
+        public enum Granularity { DAILY, MONTHLY }
+
+        /** Where batches are written: jdbc (action_logs table) or mongo (time-series collection) */
+        private String sink = "jdbc";
+
+        /** Maximum number of records waiting to be written */
+        private int queueCapacity = 10_000;
+
+        /** Rows per multi-row INSERT; a full batch is written immediately */
+        private int batchSize = 200;
+
+        /** Maximum delay before a partial batch is written */
+        private Duration flushInterval = Duration.ofMillis(500);
+
+        /** Overflow policy: BLOCK (wait up to block-timeout), DROP (count) or SPILL (append to spill-file) */
+        private Overflow overflow = Overflow.DROP;
+
+        /** Longest time a request thread waits for queue space under BLOCK */
+        private Duration blockTimeout = Duration.ofMillis(50);
+
+        /** NDJSON file receiving spilled records (overflow and failed batches under SPILL) */
+        private String spillFile = "logs/audit-spill.ndjson";
+
+        /** Retries of a failed batch before it is spilled or counted as failed */
+        private int maxRetries = 3;
+
+        /** How long shutdown waits for the queue to drain */
+        private Duration shutdownTimeout = Duration.ofSeconds(10);
+
+        /** Partition-based retention of action_logs (app.audit.retention.*) */
+        private Retention retention = new Retention();
+
+        /** Admin audit queries and exports (app.audit.query.*) */
+        private Query query = new Query();
+
+        /** Secret masking of audit text (app.audit.redaction.*) */
+        private Redaction redaction = new Redaction();
+
+        /** Memory-mapped write-ahead journal (app.audit.journal.*) */
+        private Journal journal = new Journal();
+
+        /** MongoDB sink (app.audit.mongo.*), used with sink=mongo */
+        private Mongo mongo = new Mongo();
+
+        /** Aggregation of successful idempotent requests (app.audit.rollup.*) */
+        private Rollup rollup = new Rollup();
+
+        /** Request duration histograms and slow-request records (app.audit.latency.*) */
+        private Latency latency = new Latency();
+
+        /** Rolling in-memory traffic statistics (app.audit.stats.*) */
+        private Stats stats = new Stats();
+
+        @Getter @Setter
+        public static class Retention {
+
+            /** Whether the partition maintainer creates and drops partitions */
+            private boolean enabled = true;
+
+            /** Partition size; changing it only affects partitions created afterwards */
+            private Granularity granularity = Granularity.MONTHLY;
+
+            /** Partitions whose upper bound is older than this are dropped */
+            private Duration keep = Duration.ofDays(180);
+
+            /** Partitions kept ready beyond the current one */
+            private int createAhead = 2;
+
+            /** How often partitions are checked */
+            private Duration checkInterval = Duration.ofHours(1);
+        }
+
+        @Getter @Setter
+        public static class Query {
+
+            /** Page size when the request does not specify one */
+            private int defaultPageSize = 50;
+
+            /** Upper bound of the requested page size */
+            private int maxPageSize = 500;
+
+            /** Rows per round-trip of the export cursor (bounds export memory) */
+            private int exportFetchSize = 1000;
+        }
+
+        @Getter @Setter
+        public static class Redaction {
+
+            /**
+             * Regexes whose first capturing group is a secret to replace with "***".
+             * Defaults: password form fields and JSON properties, Bearer tokens, token-carrying
+             * JSON properties (incl. token_dev_mode_only) and bare rt_/prt_ tokens.
+             * JSON values need no closing quote, so a value cut off by the body limit is still masked.
+             */
+            private List<String> rules = List.of(
+                    "(?i)password=([^\\s&]+)",
+                    "(?i)\"password\"\\s*:\\s*\"([^\"]*)",
+                    "(?i)Authorization:\\s*Bearer\\s+(\\S+)",
+                    "(?i)\"(?:token_dev_mode_only|refreshToken|accessToken|token)\"\\s*:\\s*\"([^\"]*)",
+                    "\\b(?:rt|prt)_([A-Za-z0-9_-]{16,})");
+        }
+
+        @Getter @Setter
+        public static class Journal {
+
+            /** Append records to local mmap segments before shipping them to the DB; falls back to the queue if the directory is unusable */
+            private boolean enabled = true;
+
+            /** Directory of the segment files and the checkpoint */
+            private String dir = "logs/audit-journal";
+
+            /** Size of one segment file (64KB..1GB) */
+            private DataSize segmentSize = DataSize.ofMegabytes(16);
+
+            /** Unshipped segments kept at most; beyond that records go to the in-memory queue */
+            private int maxSegments = 64;
+        }
+
+        @Getter @Setter
+        public static class Mongo {
+
+            /** Time-series collection receiving the records */
+            private String collection = "action_logs";
+
+            /** TTL of a record (the collection's expireAfterSeconds) */
+            private Duration expireAfter = Duration.ofDays(180);
+        }
+
+        @Getter @Setter
+        public static class Rollup {
+
+            /** Count successful idempotent requests per minute instead of writing a row each */
+            private boolean enabled = true;
+
+            /** Methods that may be rolled up (when the request succeeded) */
+            private List<String> methods = List.of("GET", "HEAD", "OPTIONS");
+
+            /** Paths that always get full rows: exact, or a prefix ending with /** */
+            private List<String> fullPaths = List.of("/api/auth/**");
+
+            /** How often counters are added to action_log_rollups */
+            private Duration flushInterval = Duration.ofMinutes(1);
+
+            /** Keys held in memory at most; beyond that requests get full rows */
+            private int maxKeys = 100_000;
+        }
+
+        @Getter @Setter
+        public static class Latency {
+
+            /** Requests at least this slow also get a separate "SLOW" audit row */
+            private Duration slowThreshold = Duration.ofSeconds(1);
+
+            /** Routes with their own histogram; further routes share one */
+            private int maxRoutes = 512;
+        }
+
+        @Getter @Setter
+        public static class Stats {
+
+            /** Whether requests are counted for /api/admin/stats */
+            private boolean enabled = true;
+
+            /** Sliding window the statistics cover */
+            private Duration window = Duration.ofMinutes(5);
+
+            /** Time slots per window (resolution of the slide) */
+            private int slots = 10;
+
+            /** Routes with their own counters; further routes share one */
+            private int maxRoutes = 256;
+
+            /** Users whose request rate is tracked at most */
+            private int maxUsers = 10_000;
+
+            /** Busiest users listed by default */
+            private int topUsers = 20;
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package ir.momeni.slyther.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.momeni.slyther.security.BCryptCalibrator;
+import ir.momeni.slyther.security.OffloadedPasswordEncoder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -12,19 +15,27 @@ import org.springframework.security.crypto.password.PasswordEncoder;
  * Defines a {@link PasswordEncoder} bean used for securely hashing user passwords
  * before storage. BCrypt applies a computational cost (work factor) to ensure
  * security against brute-force attacks.
+ *
+ * The work factor is calibrated to the machine at startup ({@link BCryptCalibrator}); stored
+ * hashes with a lower factor are upgraded on the next successful login (see UserService).
+ * Hashing runs on a bounded executor (see {@link OffloadedPasswordEncoder}) so that
+ * login bursts cannot tie up every request thread.
  */
 @Configuration
 public class CryptoConfig {
 
     /**
-     * BCrypt-based password hashing.
+     * BCrypt-based password hashing, offloaded to the password executor.
      *
-     * @return PasswordEncoder with a strength factor of 12
-     *         (recommended for production environments,
-     *         higher = stronger but more CPU usage)
+     * @return PasswordEncoder with the calibrated strength, or the configured one (default 12)
+     *         when calibration is off (higher = stronger but more CPU usage)
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(AppProperties props, MeterRegistry meters) {
+        var cfg = props.getSecurity().getPassword();
+        int strength = cfg.isCalibrate()
+                ? BCryptCalibrator.calibrate(cfg.getTargetTime(), cfg.getMinStrength(), cfg.getMaxStrength())
+                : cfg.getStrength();
+        return new OffloadedPasswordEncoder(new BCryptPasswordEncoder(strength), cfg, meters);
     }
 }
@@ -12,6 +12,7 @@ import org.springframework.security.config.annotation.authentication.configurati
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityCustomizer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
@@ -35,18 +36,21 @@ public class SecurityConfig {
 
     private final JwtAuthFilter jwtAuthFilter;     // Extracts auth from JWT tokens
     private final UserDetailsService userDetailsService;
+    private final UserDetailsPasswordService userDetailsPasswordService; // Re-hashes on login when the strength changed
     private final RateLimitFilter rateLimitFilter; // Applies login/forgot-password throttling
 
 
     /**
-     * 1️⃣ Security chain ONLY for Swagger / OpenAPI / Actuator endpoints.
+     * 1️⃣ Security chain ONLY for Swagger / OpenAPI / actuator health+info.
      *    These must always be fully accessible without authentication,
      *    and processed BEFORE the main API filter chain.
+     *    Other actuator endpoints (e.g. latency) go through the API chain and need ROLE_ADMIN.
      */
     @Order(1)
     @Bean
     SecurityFilterChain swaggerChain(HttpSecurity http) throws Exception {
-        http.securityMatcher("/v3/api-docs/**", "/swagger-ui.html", "/swagger-ui/**", "/actuator/**", "/error")
+        http.securityMatcher("/v3/api-docs/**", "/swagger-ui.html", "/swagger-ui/**",
+                        "/actuator/health", "/actuator/health/**", "/actuator/info", "/error")
                 .csrf(cs -> cs.disable())
                 .authorizeHttpRequests(reg -> reg.anyRequest().permitAll());
         return http.build();
@@ -65,6 +69,8 @@ public class SecurityConfig {
                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                 .authorizeHttpRequests(reg -> reg
                         .requestMatchers("/api/auth/**", "/api/test/public").permitAll() // Public endpoints
+                        .requestMatchers("/.well-known/jwks.json").permitAll()             // Public verification keys
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")                 // Metrics, latency, ...
                         .anyRequest().authenticated() // Everything else requires JWT
                 )
                 .authenticationProvider(provider)
@@ -85,6 +91,7 @@ public class SecurityConfig {
         var p = new DaoAuthenticationProvider();
         p.setUserDetailsService(userDetailsService);
         p.setPasswordEncoder(passwordEncoder);
+        p.setUserDetailsPasswordService(userDetailsPasswordService);
         return p;
     }
 
@@ -109,7 +116,9 @@ public class SecurityConfig {
                 "/v3/api-docs/**",
                 "/swagger-ui/**",
                 "/swagger-ui.html",
-                "/actuator/**",
+                "/actuator/health",
+                "/actuator/health/**",
+                "/actuator/info",
                 "/error"
         );
     }
@@ -0,0 +1,75 @@
+package ir.momeni.slyther.jwk.controller;
+
+import ir.momeni.slyther.config.AppProperties;
+import ir.momeni.slyther.security.JwtKey;
+import ir.momeni.slyther.security.JwtKeyRing;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.math.BigInteger;
+import java.security.interfaces.ECPublicKey;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Publishes the public half of the JWT key ring as a JSON Web Key Set (RFC 7517).
+ * <p>
+ * Other services fetch this document (and cache it per Cache-Control) to verify our access
+ * tokens locally. Upcoming keys are published ahead of activation, so a cached JWKS
+ * already knows a key before the first token is signed with it.
+ * In HS256 mode the set is empty.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtKeyRing ring;
+    private final AppProperties props;
+
+
+    /**
+     * @return the JWKS document, e.g. {"keys":[{"kty":"EC","crv":"P-256","kid":"...","x":"...","y":"..."}]}
+     */
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> jwks() {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        for (JwtKey k : ring.verificationKeys()) {
+            if (k.publicKey() instanceof ECPublicKey ec) keys.add(toJwk(k.kid(), ec));
+        }
+        var maxAge = props.getSecurity().getJwt().getKeys().getJwksMaxAge();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(maxAge).cachePublic())
+                .body(Map.of("keys", keys));
+    }
+
+
+    /** Encodes a P-256 public key as an EC JWK. */
+    private static Map<String, Object> toJwk(String kid, ECPublicKey key) {
+        Map<String, Object> jwk = new LinkedHashMap<>();
+        jwk.put("kty", "EC");
+        jwk.put("crv", "P-256");
+        jwk.put("use", "sig");
+        jwk.put("alg", "ES256");
+        jwk.put("kid", kid);
+        jwk.put("x", coordinate(key.getW().getAffineX()));
+        jwk.put("y", coordinate(key.getW().getAffineY()));
+        return jwk;
+    }
+
+
+    /** Unsigned, left-padded 32-byte big-endian coordinate in base64url (no padding). */
+    private static String coordinate(BigInteger v) {
+        byte[] raw = v.toByteArray();
+        byte[] out = new byte[32];
+        int len = Math.min(raw.length, 32);
+        System.arraycopy(raw, raw.length - len, out, 32 - len, len);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(out);
+    }
+}
@@ -0,0 +1,50 @@
+package ir.momeni.slyther.jwk.entity;
+
+import ir.momeni.slyther.common.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+
+/**
+ * Persisted asymmetric JWT signing key, shared by all application nodes.
+ * <p>
+ * Keys are ordered by {@link #activatesAt}: the newest key whose activation time has passed
+ * signs new tokens; older keys stay verifiable until every token they signed has expired;
+ * keys with a future activation time are already published for verification.
+ * <p>
+ * The private key is stored PKCS#8-encoded and AES-GCM encrypted under a key derived from
+ * {@code JWT_SECRET} (see {@code PrivateKeyCipher}); the table alone cannot sign tokens.
+ */
+@Entity
+@Table(
+        name = "jwt_signing_keys",
+        indexes = {
+                @Index(name = "idx_jwk_kid", columnList = "kid", unique = true),
+                @Index(name = "idx_jwk_activates_at", columnList = "activates_at")
+        }
+)
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class SigningKey extends BaseEntity {
+
+    /** Key id written to the JWS "kid" header and the JWKS entry. */
+    @Column(nullable = false, unique = true, length = 64)
+    private String kid;
+
+    /** JWS algorithm of this key (e.g., ES256). */
+    @Column(nullable = false, length = 16)
+    private String algorithm;
+
+    /** Base64 X.509 (SubjectPublicKeyInfo) encoded public key. */
+    @Column(name = "public_key", nullable = false, length = 512)
+    private String publicKey;
+
+    /** Encrypted PKCS#8 private key ({@code v1:} + Base64), or legacy plaintext Base64. */
+    @Column(name = "private_key", nullable = false, length = 512)
+    private String privateKey;
+
+    /** Moment from which the key may be used for signing. */
+    @Column(name = "activates_at", nullable = false)
+    private Instant activatesAt;
+}
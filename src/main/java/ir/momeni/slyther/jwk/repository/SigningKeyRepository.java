@@ -0,0 +1,28 @@
+package ir.momeni.slyther.jwk.repository;
+
+import ir.momeni.slyther.jwk.entity.SigningKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+
+/**
+ * Repository for {@link SigningKey} entities (the shared JWT key ring).
+ */
+public interface SigningKeyRepository extends JpaRepository<SigningKey, Long> {
+
+    /**
+     * Loads the whole ring, oldest activation first.
+     *
+     * @return all stored keys ordered by activation time
+     */
+    List<SigningKey> findAllByOrderByActivatesAtAsc();
+
+    /**
+     * Finds the most recently created (latest activation) key.
+     *
+     * @return the newest key, or empty if the ring is empty
+     */
+    Optional<SigningKey> findTopByOrderByActivatesAtDesc();
+}
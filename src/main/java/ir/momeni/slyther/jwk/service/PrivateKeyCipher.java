@@ -0,0 +1,96 @@
+package ir.momeni.slyther.jwk.service;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+
+/**
+ * Encrypts the PKCS#8 private keys of the key ring before they are stored in
+ * {@code jwt_signing_keys}, so a leaked table or backup does not leak signing keys.
+ * <p>
+ * The key-encryption key (AES-256) is derived with HMAC-SHA256 from the configured secret
+ * ({@code app.security.jwt.secret}, i.e. {@code JWT_SECRET}, unused for signing in ES256 mode).
+ * Every node must run with the same secret; changing it makes the stored keys unreadable.
+ * <p>
+ * Stored form: {@code v1:} + Base64(12-byte IV || AES-GCM ciphertext and tag), with the key's
+ * kid as associated data (a ciphertext copied to another row does not decrypt). Values without
+ * the prefix are legacy plaintext Base64 PKCS#8.
+ */
+public final class PrivateKeyCipher {
+
+    private static final String PREFIX = "v1:";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+    private static final byte[] KEK_LABEL = "slyther jwt signing key encryption v1".getBytes(StandardCharsets.US_ASCII);
+
+    private final SecretKeySpec kek;
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * @param secret the shared secret the key-encryption key is derived from
+     */
+    public PrivateKeyCipher(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("app.security.jwt.secret is required to encrypt JWT signing keys");
+        }
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            this.kek = new SecretKeySpec(mac.doFinal(KEK_LABEL), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 not available", e);
+        }
+    }
+
+
+    /**
+     * @param kid     the key id (bound as associated data)
+     * @param pkcs8   the encoded private key
+     * @return the stored form
+     */
+    public String encrypt(String kid, byte[] pkcs8) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            random.nextBytes(iv);
+            Cipher c = Cipher.getInstance(TRANSFORMATION);
+            c.init(Cipher.ENCRYPT_MODE, kek, new GCMParameterSpec(TAG_BITS, iv));
+            c.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+            byte[] sealed = c.doFinal(pkcs8);
+            byte[] out = ByteBuffer.allocate(IV_LENGTH + sealed.length).put(iv).put(sealed).array();
+            return PREFIX + Base64.getEncoder().encodeToString(out);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot encrypt JWT signing key " + kid, e);
+        }
+    }
+
+
+    /**
+     * @param kid    the key id the value was encrypted for
+     * @param stored the stored form (or legacy plaintext Base64)
+     * @return the encoded private key
+     * @throws GeneralSecurityException if the value was not encrypted with this secret for this kid
+     */
+    public byte[] decrypt(String kid, String stored) throws GeneralSecurityException {
+        if (!isEncrypted(stored)) return Base64.getDecoder().decode(stored);
+        byte[] in = Base64.getDecoder().decode(stored.substring(PREFIX.length()));
+        if (in.length <= IV_LENGTH) throw new GeneralSecurityException("Truncated encrypted key");
+        Cipher c = Cipher.getInstance(TRANSFORMATION);
+        c.init(Cipher.DECRYPT_MODE, kek, new GCMParameterSpec(TAG_BITS, in, 0, IV_LENGTH));
+        c.updateAAD(kid.getBytes(StandardCharsets.UTF_8));
+        return c.doFinal(in, IV_LENGTH, in.length - IV_LENGTH);
+    }
+
+
+    /** @return whether a stored value is encrypted (false for legacy plaintext rows) */
+    public static boolean isEncrypted(String stored) {
+        return stored.startsWith(PREFIX);
+    }
+}
@@ -0,0 +1,181 @@
+package ir.momeni.slyther.jwk.service;
+
+import ir.momeni.slyther.config.AppProperties;
+import ir.momeni.slyther.jwk.entity.SigningKey;
+import ir.momeni.slyther.jwk.repository.SigningKeyRepository;
+import ir.momeni.slyther.security.JwtKey;
+import ir.momeni.slyther.security.JwtKeyRing;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.*;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+
+/**
+ * Maintains the shared ES256 key ring used to sign and verify access tokens.
+ * <p>
+ * Lifecycle of a key (all timestamps derived from {@code activatesAt}):
+ * 1) Created {@code publishAhead} before activation — already published via JWKS and accepted
+ *    for verification, so remote verifiers with a cached JWKS know it before it is used.
+ * 2) Active — the newest activated key signs all new tokens.
+ * 3) Superseded — once a newer key activates, the old one stays verifiable for the access token
+ *    lifetime plus {@code verificationGrace}, then it is deleted.
+ * <p>
+ * Every node reloads the ring from the DB every {@code refreshInterval}, so keys created by
+ * another node are picked up without coordination. If two nodes rotate at the same moment,
+ * both keys are published and the later one wins; nothing breaks.
+ * <p>
+ * Private keys are stored encrypted ({@link PrivateKeyCipher}, key derived from
+ * {@code JWT_SECRET}); legacy plaintext rows are re-encrypted on the next reload.
+ * <p>
+ * Inactive in HS256 mode.
+ */
+@Slf4j
+@Service
+public class SigningKeyService {
+
+    private static final String ALGORITHM = "ES256";
+
+    private final SigningKeyRepository repo;
+    private final JwtKeyRing ring;
+    private final boolean enabled;
+    private final AppProperties.Security.Keys cfg;
+    private final Duration accessTtl;
+    private final PrivateKeyCipher cipher;    // null in HS256 mode
+
+    public SigningKeyService(SigningKeyRepository repo, JwtKeyRing ring, AppProperties props) {
+        var jwt = props.getSecurity().getJwt();
+        this.repo = repo;
+        this.ring = ring;
+        this.enabled = ALGORITHM.equalsIgnoreCase(jwt.getAlgorithm());
+        this.cfg = jwt.getKeys();
+        this.accessTtl = Duration.ofMinutes(jwt.getAccessExpMins());
+        this.cipher = enabled ? new PrivateKeyCipher(jwt.getSecret()) : null;
+    }
+
+
+    /** Loads (or bootstraps) the ring before the application starts serving requests. */
+    @PostConstruct
+    void init() {
+        tick();
+        if (enabled) log.info("JWT key ring loaded: {} verification key(s)", ring.verificationKeys().size());
+    }
+
+
+    /**
+     * Periodic maintenance: rotates if due, then reloads the ring from the DB.
+     */
+    @Scheduled(initialDelayString = "${app.security.jwt.keys.refresh-interval:PT1M}",
+            fixedDelayString = "${app.security.jwt.keys.refresh-interval:PT1M}")
+    public synchronized void tick() {
+        if (!enabled) return;
+        rotateIfDue(Instant.now());
+        reload(Instant.now());
+    }
+
+
+    /**
+     * Creates the next key when the newest one is older than {@code rotationInterval - publishAhead}.
+     * On an empty ring the first key is activated immediately.
+     */
+    private void rotateIfDue(Instant now) {
+        var newest = repo.findTopByOrderByActivatesAtDesc();
+        if (newest.isEmpty()) {
+            repo.save(generate(now));
+            log.info("Generated initial JWT signing key");
+            return;
+        }
+        Instant due = newest.get().getActivatesAt().plus(cfg.getRotationInterval()).minus(cfg.getPublishAhead());
+        if (!now.isBefore(due)) {
+            SigningKey next = repo.save(generate(now.plus(cfg.getPublishAhead())));
+            log.info("Rotated JWT signing key: kid={} activates at {}", next.getKid(), next.getActivatesAt());
+        }
+    }
+
+
+    /**
+     * Rebuilds the in-memory ring from the DB and deletes keys that can no longer verify any live token.
+     */
+    private void reload(Instant now) {
+        List<SigningKey> keys = repo.findAllByOrderByActivatesAtAsc();
+        Duration tail = accessTtl.plus(cfg.getVerificationGrace());
+
+        JwtKey active = null;
+        List<JwtKey> verification = new ArrayList<>();
+        List<Long> expired = new ArrayList<>();
+
+        for (int i = 0; i < keys.size(); i++) {
+            SigningKey k = keys.get(i);
+            SigningKey successor = (i + 1 < keys.size()) ? keys.get(i + 1) : null;
+
+            // Superseded long enough ago that every token it signed has expired
+            if (successor != null && !successor.getActivatesAt().plus(tail).isAfter(now)) {
+                expired.add(k.getId());
+                continue;
+            }
+            JwtKey jk = decode(k);
+            if (!PrivateKeyCipher.isEncrypted(k.getPrivateKey())) encryptLegacy(k, jk);
+            verification.add(jk);
+            if (!k.getActivatesAt().isAfter(now)) active = jk;   // ascending order: latest activated wins
+        }
+
+        if (!expired.isEmpty()) {
+            repo.deleteAllByIdInBatch(expired);
+            log.info("Removed {} expired JWT signing key(s)", expired.size());
+        }
+        ring.install(active, verification);
+    }
+
+
+    /** Generates a fresh P-256 key pair. */
+    private SigningKey generate(Instant activatesAt) {
+        try {
+            KeyPairGenerator gen = KeyPairGenerator.getInstance("EC");
+            gen.initialize(new ECGenParameterSpec("secp256r1"));
+            KeyPair kp = gen.generateKeyPair();
+            String kid = UUID.randomUUID().toString();
+            return SigningKey.builder()
+                    .kid(kid)
+                    .algorithm(ALGORITHM)
+                    .publicKey(Base64.getEncoder().encodeToString(kp.getPublic().getEncoded()))
+                    .privateKey(cipher.encrypt(kid, kp.getPrivate().getEncoded()))
+                    .activatesAt(activatesAt)
+                    .build();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("EC key generation not available", e);
+        }
+    }
+
+
+    /** Decodes a stored key into its JCA form. */
+    private JwtKey decode(SigningKey k) {
+        try {
+            KeyFactory kf = KeyFactory.getInstance("EC");
+            PublicKey pub = kf.generatePublic(new X509EncodedKeySpec(Base64.getDecoder().decode(k.getPublicKey())));
+            PrivateKey priv = kf.generatePrivate(new PKCS8EncodedKeySpec(cipher.decrypt(k.getKid(), k.getPrivateKey())));
+            return new JwtKey(k.getKid(), priv, pub, k.getActivatesAt());
+        } catch (GeneralSecurityException e) {
+            // Also raised when JWT_SECRET differs from the one the key was encrypted with
+            throw new IllegalStateException("Invalid stored JWT key (or JWT_SECRET changed): " + k.getKid(), e);
+        }
+    }
+
+
+    /** Replaces a plaintext private key written before keys were encrypted. */
+    private void encryptLegacy(SigningKey k, JwtKey decoded) {
+        k.setPrivateKey(cipher.encrypt(k.getKid(), decoded.privateKey().getEncoded()));
+        repo.save(k);
+        log.info("Encrypted legacy plaintext JWT signing key: kid={}", k.getKid());
+    }
+}
@@ -0,0 +1,147 @@
+package ir.momeni.slyther.ratelimit.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Fixed-capacity, lock-free GCRA (generic cell rate algorithm) state table.
+ * <p>
+ * GCRA is a token bucket expressed as one timestamp per key, the theoretical arrival time (TAT):
+ * - A request at {@code now} conforms if {@code TAT - tolerance <= now}; it then moves
+ *   {@code TAT := max(TAT, now) + emission}.
+ * - {@code emission = window / limit}; {@code tolerance = emission * (burst - 1)}.
+ * - A key whose TAT is in the past is indistinguishable from a key never seen, so idle
+ *   entries can be dropped without losing any state.
+ * <p>
+ * Layout:
+ * - Each slot is one {@code long}: a 24-bit key fingerprint and a 40-bit TAT in milliseconds
+ *   since the table was created (~34 years). 0 means empty. Every update is a single CAS.
+ * - Slots live in a few {@link AtomicLongArray} stripes; the key hash selects the stripe,
+ *   the start slot and the fingerprint from independent bits.
+ * - A key is looked up in a window of {@value #PROBE} slots from its start slot.
+ * <p>
+ * Capacity is fixed at construction (the hard cap on tracked keys, 8 bytes each). Inserting
+ * into a full window reuses an idle slot, else evicts the slot with the oldest TAT (the key
+ * closest to idle); only the latter loses state and is counted as an eviction.
+ * <p>
+ * Caveats: two keys with the same stripe, window and fingerprint share a limit
+ * (probability ~ {@value #PROBE} / 2^24 per key); two threads inserting the same new key at
+ * the same instant may each get a slot, letting one extra request through.
+ */
+public class GcraTable {
+
+    /** Slots scanned per lookup. */
+    static final int PROBE = 8;
+
+    private static final int TAT_BITS = 40;
+    private static final long TAT_MASK = (1L << TAT_BITS) - 1;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+    private final long startNanos = System.nanoTime();
+    private final LongAdder evictions = new LongAdder();
+
+
+    /**
+     * @param maxKeys maximum number of tracked keys (rounded up to a multiple of the stripe count)
+     */
+    public GcraTable(int maxKeys) {
+        int keys = Math.max(PROBE, maxKeys);
+        int count = Math.min(16, Integer.highestOneBit(Math.max(1, keys / 1024)));
+        int perStripe = Math.max(PROBE, (keys + count - 1) / count);
+        this.stripes = new AtomicLongArray[count];
+        for (int i = 0; i < count; i++) stripes[i] = new AtomicLongArray(perStripe);
+        this.stripeMask = count - 1;
+    }
+
+
+    /**
+     * Tries to admit one request for a key.
+     *
+     * @param keyHash         well-mixed 64-bit hash of the key
+     * @param emissionMillis  interval between requests at the sustained rate
+     * @param toleranceMillis burst allowance ({@code emission * (burst - 1)})
+     * @return 0 if admitted; otherwise milliseconds until the next request would conform
+     */
+    public long acquire(long keyHash, long emissionMillis, long toleranceMillis) {
+        long now = now();
+        AtomicLongArray slots = stripes[(int) (keyHash >>> 32) & stripeMask];
+        int n = slots.length();
+        int start = (int) (((keyHash & 0xffffffffL) * n) >>> 32);
+        long fp = fingerprint(keyHash);
+
+        retry:
+        for (;;) {
+            int free = -1, victim = -1;
+            long freeValue = 0, victimValue = 0, victimTat = Long.MAX_VALUE;
+
+            for (int p = 0, i = start; p < PROBE; p++) {
+                long v = slots.get(i);
+                long tat = v & TAT_MASK;
+                if (v != 0 && (v >>> TAT_BITS) == fp) {
+                    long allowAt = tat - toleranceMillis;
+                    if (allowAt > now) return allowAt - now;
+                    if (slots.compareAndSet(i, v, pack(fp, Math.max(tat, now) + emissionMillis))) return 0;
+                    continue retry;
+                }
+                if (v == 0 || tat <= now) {
+                    if (free < 0) { free = i; freeValue = v; }
+                } else if (tat < victimTat) {
+                    victim = i; victimValue = v; victimTat = tat;
+                }
+                if (++i == n) i = 0;
+            }
+
+            // Unknown (or idle-evicted) key: a fresh key always conforms
+            boolean evict = free < 0;
+            int slot = evict ? victim : free;
+            if (slots.compareAndSet(slot, evict ? victimValue : freeValue, pack(fp, now + emissionMillis))) {
+                if (evict) evictions.increment();
+                return 0;
+            }
+        }
+    }
+
+
+    /** @return number of keys currently holding state (full scan; for stats only) */
+    public int trackedKeys() {
+        long now = now();
+        int live = 0;
+        for (AtomicLongArray slots : stripes) {
+            for (int i = 0, n = slots.length(); i < n; i++) {
+                if ((slots.get(i) & TAT_MASK) > now) live++;
+            }
+        }
+        return live;
+    }
+
+
+    /** @return total slot count (the key cap) */
+    public int capacity() {
+        return stripes.length * stripes[0].length();
+    }
+
+
+    /** @return number of live keys evicted because their probe window was full */
+    public long evictions() {
+        return evictions.sum();
+    }
+
+
+    /** Milliseconds since construction; starts at 1 so a stored TAT is never 0. */
+    private long now() {
+        return (System.nanoTime() - startNanos) / 1_000_000L + 1;
+    }
+
+
+    private static long fingerprint(long keyHash) {
+        long fp = keyHash >>> TAT_BITS;
+        return fp != 0 ? fp : 1;
+    }
+
+
+    private static long pack(long fp, long tat) {
+        return fp << TAT_BITS | (tat & TAT_MASK);
+    }
+}
@@ -0,0 +1,265 @@
+package ir.momeni.slyther.ratelimit.service;
+
+import ir.momeni.slyther.common.db.DatabaseVendor;
+import ir.momeni.slyther.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Cluster-wide {@link RateLimitStore}: fixed-window counters in the shared database
+ * ({@code rate_limit_counters}), consumed through local quota leases.
+ * <p>
+ * Request path (no I/O):
+ * - Each (policy, client) key has a local lease for the current window: the number of
+ *   requests this node may still admit before it hears from the database again.
+ * - Admitting a request decrements the lease and counts it as unflushed.
+ * - A key seen for the first time gets {@code limit / nodes} (rounded up).
+ * <p>
+ * Sync ({@code sync-interval}, one background thread per node):
+ * 1) Unflushed counts are added to the shared rows with one batched vendor upsert
+ *    ({@link DatabaseVendor#upsertAddSql}): a row is inserted by the first node that writes
+ *    a (key, window) and added to by the others.
+ * 2) Totals of the dirty or exhausted keys are read back and their leases reset to this
+ *    node's share of the remaining global quota.
+ * <p>
+ * Accuracy: a client may exceed the limit by at most about one lease per node (taken
+ * before the other nodes' counts arrive), and windows are aligned to the epoch, so
+ * bursts at a window boundary may pass. If the database is unreachable, counts are kept
+ * and retried while nodes keep enforcing their current leases.
+ * <p>
+ * Active only with {@code app.security.ratelimit.store=jdbc}; when more than
+ * {@code max-tracked-keys} keys are live, new keys fall back to node-local limiting.
+ */
+@Slf4j
+@Component
+public class JdbcRateLimitStore implements RateLimitStore {
+
+    /** Keys per multi-row SELECT. */
+    private static final int CHUNK = 500;
+
+    private static final String TABLE = "rate_limit_counters";
+    private static final String[] KEYS = {"key_hash", "window_start"};
+
+    private final JdbcTemplate jdbc;
+    private final MemoryRateLimitStore fallback;
+    private final boolean enabled;
+    private final int nodes;
+    private final int maxKeys;
+
+    /** Current-window lease per key. */
+    private final Map<Long, Lease> leases = new ConcurrentHashMap<>();
+
+    /** Leases replaced by a newer window while still holding unflushed counts. */
+    private final Queue<Lease> retired = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder overflow = new LongAdder();
+    private volatile String upsertSql;
+
+
+    /** Local view of one (key, window) counter. */
+    private static final class Lease {
+        final long key;
+        final long windowStart;
+        final long windowEnd;
+        final int limit;
+
+        /** Requests this node may still admit before the next sync (may go negative). */
+        final AtomicInteger remaining;
+
+        /** Admitted requests not yet written to the database. */
+        final AtomicInteger unflushed = new AtomicInteger();
+
+        Lease(long key, long windowStart, long windowMillis, int limit, int initial) {
+            this.key = key;
+            this.windowStart = windowStart;
+            this.windowEnd = windowStart + windowMillis;
+            this.limit = limit;
+            this.remaining = new AtomicInteger(initial);
+        }
+    }
+
+
+    public JdbcRateLimitStore(JdbcTemplate jdbc, MemoryRateLimitStore fallback, AppProperties props) {
+        var cfg = props.getSecurity().getRatelimit();
+        this.jdbc = jdbc;
+        this.fallback = fallback;
+        this.enabled = "jdbc".equalsIgnoreCase(cfg.getStore());
+        this.nodes = Math.max(1, cfg.getJdbc().getNodes());
+        this.maxKeys = cfg.getMaxTrackedKeys();
+    }
+
+
+    @Override
+    public long acquire(RateLimitService.Policy policy, long keyHash) {
+        long now = System.currentTimeMillis();
+        long windowMillis = policy.windowSeconds() * 1000L;
+        long windowStart = now - Math.floorMod(now, windowMillis);
+
+        Lease lease = leases.get(keyHash);
+        if (lease == null || lease.windowStart != windowStart) {
+            if (lease == null && leases.size() >= maxKeys) {
+                overflow.increment();
+                return fallback.acquire(policy, keyHash);
+            }
+            lease = leases.compute(keyHash, (k, cur) -> {
+                if (cur != null && cur.windowStart == windowStart) return cur;
+                if (cur != null && cur.unflushed.get() > 0) retired.add(cur);
+                return new Lease(k, windowStart, windowMillis, policy.maxRequests(), share(policy.maxRequests()));
+            });
+        }
+
+        if (lease.remaining.getAndDecrement() > 0) {
+            lease.unflushed.incrementAndGet();
+            return 0;
+        }
+        return Math.max(1, lease.windowEnd - now);
+    }
+
+
+    @Override
+    public int trackedKeys() {
+        return leases.size() + fallback.trackedKeys();
+    }
+
+
+    @Override
+    public long evictions() {
+        return overflow.sum() + fallback.evictions();
+    }
+
+
+    /** Flushes local counts, refreshes leases from the shared totals, drops ended windows. */
+    @Scheduled(initialDelayString = "${app.security.ratelimit.jdbc.sync-interval:PT1S}",
+            fixedDelayString = "${app.security.ratelimit.jdbc.sync-interval:PT1S}")
+    public void sync() {
+        if (!enabled) return;
+        long now = System.currentTimeMillis();
+
+        // 1) Collect deltas (retired windows first, then current ones)
+        List<Lease> dirty = new ArrayList<>();
+        List<Integer> deltas = new ArrayList<>();
+        List<Lease> refresh = new ArrayList<>();
+        for (Lease l; (l = retired.poll()) != null; ) collect(l, dirty, deltas);
+        for (Lease l : leases.values()) {
+            boolean exhausted = l.remaining.get() <= 0;
+            if (collect(l, dirty, deltas) || exhausted) {
+                if (l.windowEnd > now) refresh.add(l);
+            }
+        }
+
+        // 2) Write them, then re-lease from the shared totals
+        try {
+            flush(dirty, deltas);
+            refresh(refresh);
+        } catch (DataAccessException e) {
+            log.warn("Rate-limit sync failed, keeping local counts: {}", e.getMessage());
+        }
+
+        // 3) Forget ended windows once their counts are written
+        leases.values().removeIf(l -> l.windowEnd <= now && l.unflushed.get() == 0);
+    }
+
+
+    /** Deletes counters of ended windows. */
+    @Scheduled(initialDelayString = "${app.security.ratelimit.jdbc.purge-interval:PT5M}",
+            fixedDelayString = "${app.security.ratelimit.jdbc.purge-interval:PT5M}")
+    public void purge() {
+        if (!enabled) return;
+        int n = jdbc.update("DELETE FROM rate_limit_counters WHERE expires_at < ?", System.currentTimeMillis());
+        if (n > 0) log.debug("Purged {} rate-limit counter(s)", n);
+    }
+
+
+    /** Writes outstanding counts before the node goes away. */
+    @PreDestroy
+    void shutdown() {
+        sync();
+    }
+
+
+    /** Moves a lease's unflushed count into the batch; returns true if there was one. */
+    private static boolean collect(Lease l, List<Lease> dirty, List<Integer> deltas) {
+        int delta = l.unflushed.getAndSet(0);
+        if (delta == 0) return false;
+        dirty.add(l);
+        deltas.add(delta);
+        return true;
+    }
+
+
+    /**
+     * Adds the deltas to the shared rows in one batched upsert. On failure the deltas are put
+     * back into their leases so the next sync retries them (a partially applied batch may then
+     * be counted twice, which only errs on the strict side).
+     */
+    private void flush(List<Lease> dirty, List<Integer> deltas) {
+        if (dirty.isEmpty()) return;
+        List<Object[]> rows = new ArrayList<>(dirty.size());
+        for (int i = 0; i < dirty.size(); i++) {
+            Lease l = dirty.get(i);
+            rows.add(new Object[]{l.key, l.windowStart, l.windowEnd, deltas.get(i)});
+        }
+        try {
+            jdbc.batchUpdate(upsertSql(), rows);
+        } catch (DataAccessException e) {
+            for (int i = 0; i < dirty.size(); i++) dirty.get(i).unflushed.addAndGet(deltas.get(i));
+            throw e;
+        }
+    }
+
+
+    /** Reads the shared totals and resets each lease to this node's share of what is left. */
+    private void refresh(List<Lease> stale) {
+        for (int from = 0; from < stale.size(); from += CHUNK) {
+            List<Lease> chunk = stale.subList(from, Math.min(stale.size(), from + CHUNK));
+            Map<Long, Integer> used = new HashMap<>();
+            String in = String.join(",", Collections.nCopies(chunk.size(), "(?, ?)"));
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); i++) {
+                args[2 * i] = chunk.get(i).key;
+                args[2 * i + 1] = chunk.get(i).windowStart;
+            }
+            jdbc.query("SELECT key_hash, used FROM rate_limit_counters WHERE (key_hash, window_start) IN (" + in + ")",
+                    rs -> { used.put(rs.getLong(1), rs.getInt(2)); }, args);
+
+            for (Lease l : chunk) {
+                int global = used.getOrDefault(l.key, 0);
+                l.remaining.set(share(l.limit - global) - l.unflushed.get());
+            }
+        }
+    }
+
+
+    /** Insert-or-add of one (key, window) row; expires_at is only set by the insert. */
+    private String upsertSql() {
+        String sql = upsertSql;
+        if (sql == null) {
+            DatabaseVendor vendor = jdbc.execute((ConnectionCallback<DatabaseVendor>) DatabaseVendor::of);
+            upsertSql = sql = vendor.upsertAddSql(TABLE, "used", KEYS, "expires_at");
+        }
+        return sql;
+    }
+
+
+    /** This node's part of the remaining quota. */
+    private int share(int remaining) {
+        return remaining <= 0 ? 0 : (remaining + nodes - 1) / nodes;
+    }
+}
@@ -0,0 +1,39 @@
+package ir.momeni.slyther.ratelimit.service;
+
+import ir.momeni.slyther.config.AppProperties;
+import org.springframework.stereotype.Component;
+
+
+/**
+ * Node-local {@link RateLimitStore} backed by a {@link GcraTable}.
+ * <p>
+ * Lock-free and allocation-free; limits apply per node (with N replicas a client may get
+ * up to N times the configured rate).
+ */
+@Component
+public class MemoryRateLimitStore implements RateLimitStore {
+
+    private final GcraTable table;
+
+    public MemoryRateLimitStore(AppProperties props) {
+        this.table = new GcraTable(props.getSecurity().getRatelimit().getMaxTrackedKeys());
+    }
+
+
+    @Override
+    public long acquire(RateLimitService.Policy policy, long keyHash) {
+        return table.acquire(keyHash, policy.emissionMillis(), policy.toleranceMillis());
+    }
+
+
+    @Override
+    public int trackedKeys() {
+        return table.trackedKeys();
+    }
+
+
+    @Override
+    public long evictions() {
+        return table.evictions();
+    }
+}
@@ -0,0 +1,137 @@
+package ir.momeni.slyther.ratelimit.service;
+
+import ir.momeni.slyther.config.AppProperties;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+
+/**
+ * Per-route, per-client rate limiting.
+ * <p>
+ * Policies come from {@code app.security.ratelimit.policies}; each one names a method and a
+ * path (exact, or a prefix when it ends with {@code /**}) and allows {@code max-requests}
+ * per {@code window-seconds}. With the memory store ({@link GcraTable}):
+ * - Up to {@code max-requests} requests may arrive back to back (the burst);
+ * - after that, one request per {@code window / max-requests} (smooth refill, no window-boundary bursts).
+ * The jdbc store counts fixed windows instead. Policy ids are positions in the list, so all
+ * nodes sharing a jdbc store must use the same policy order.
+ * <p>
+ * Keys are (policy, client) pairs hashed straight from the client string, so the request
+ * path allocates nothing. Accounting is done by the {@link RateLimitStore} selected with
+ * {@code app.security.ratelimit.store}; memory is bounded by {@code max-tracked-keys}.
+ */
+@Service
+public class RateLimitService {
+
+    /**
+     * A compiled policy.
+     *
+     * @param id              position in the configuration (part of the key hash)
+     * @param method          HTTP method, e.g. "POST"
+     * @param path            exact path, or the prefix of a {@code /**} pattern
+     * @param prefix          whether {@code path} is a prefix
+     * @param maxRequests     requests allowed per window
+     * @param windowSeconds   window length
+     * @param emissionMillis  window / maxRequests
+     * @param toleranceMillis emission * (maxRequests - 1)
+     */
+    public record Policy(int id, String method, String path, boolean prefix,
+                         int maxRequests, int windowSeconds, long emissionMillis, long toleranceMillis) {
+
+        boolean matches(String method, String path) {
+            if (!this.method.equalsIgnoreCase(method)) return false;
+            return prefix ? path.startsWith(this.path) : this.path.equals(path);
+        }
+    }
+
+    private final Policy[] policies;
+    private final RateLimitStore store;
+
+    public RateLimitService(AppProperties props, MemoryRateLimitStore memory, JdbcRateLimitStore jdbc) {
+        var cfg = props.getSecurity().getRatelimit();
+        this.policies = compile(cfg.getPolicies());
+        this.store = switch (cfg.getStore().toLowerCase()) {
+            case "memory" -> memory;
+            case "jdbc" -> jdbc;
+            default -> throw new IllegalArgumentException("Unknown rate-limit store: " + cfg.getStore());
+        };
+    }
+
+
+    /**
+     * Finds the policy for a request.
+     *
+     * @return the first matching policy, or null if the request is not rate limited
+     */
+    public Policy match(String method, String path) {
+        for (Policy p : policies) {
+            if (p.matches(method, path)) return p;
+        }
+        return null;
+    }
+
+
+    /**
+     * Counts one request of a client against a policy.
+     *
+     * @param policy the matched policy
+     * @param client client identity (typically the IP address)
+     * @return 0 if allowed; otherwise milliseconds until the client may retry
+     */
+    public long acquire(Policy policy, String client) {
+        return store.acquire(policy, hash(policy.id(), client));
+    }
+
+
+    /** @return the configured policies, in match order */
+    public List<Policy> policies() {
+        return List.of(policies);
+    }
+
+
+    /** @return number of clients currently holding rate-limit state */
+    public int trackedKeys() {
+        return store.trackedKeys();
+    }
+
+
+    /** @return number of clients whose state was dropped because the table was full */
+    public long evictions() {
+        return store.evictions();
+    }
+
+
+    private static Policy[] compile(List<AppProperties.Security.Policy> configured) {
+        Policy[] out = new Policy[configured.size()];
+        for (int i = 0; i < out.length; i++) {
+            var c = configured.get(i);
+            if (c.getPath() == null || c.getMaxRequests() < 1 || c.getWindowSeconds() < 1) {
+                throw new IllegalArgumentException("Invalid rate-limit policy #" + i + ": path, max-requests and window-seconds are required");
+            }
+            boolean prefix = c.getPath().endsWith("/**");
+            String path = prefix ? c.getPath().substring(0, c.getPath().length() - 2) : c.getPath();
+            long emission = Math.max(1, c.getWindowSeconds() * 1000L / c.getMaxRequests());
+            out[i] = new Policy(i, c.getMethod(), path, prefix, c.getMaxRequests(), c.getWindowSeconds(),
+                    emission, emission * (c.getMaxRequests() - 1));
+        }
+        return out;
+    }
+
+
+    /** 64-bit FNV-1a over the client chars, seeded with the policy id, plus a final avalanche. */
+    private static long hash(int policyId, String client) {
+        long h = 0xcbf29ce484222325L ^ policyId;
+        h *= 0x100000001b3L;
+        for (int i = 0, n = client.length(); i < n; i++) {
+            h ^= client.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,32 @@
+package ir.momeni.slyther.ratelimit.service;
+
+
+/**
+ * Storage backend for rate-limit accounting.
+ * <p>
+ * Implementations:
+ * - {@link MemoryRateLimitStore}: node-local GCRA table (default, {@code store: memory}).
+ * - {@link JdbcRateLimitStore}: cluster-wide counters in the shared database with local
+ *   quota leases ({@code store: jdbc}).
+ * <p>
+ * {@link #acquire} runs on the request path and must not block on I/O.
+ */
+public interface RateLimitStore {
+
+    /**
+     * Counts one request against a policy.
+     *
+     * @param policy  the matched policy
+     * @param keyHash 64-bit hash of (policy, client); identical on every node
+     * @return 0 if admitted; otherwise milliseconds until the client may retry
+     */
+    long acquire(RateLimitService.Policy policy, long keyHash);
+
+
+    /** @return number of keys currently holding state on this node */
+    int trackedKeys();
+
+
+    /** @return number of keys whose state was dropped because local capacity was exhausted */
+    long evictions();
+}
@@ -0,0 +1,35 @@
+package ir.momeni.slyther.revocation.entity;
+
+import ir.momeni.slyther.common.BaseEntity;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+
+/**
+ * A revoked access token, identified by its "jti" claim.
+ * <p>
+ * Rows only live until the token's own expiry; after that the signature check rejects the
+ * token anyway and the row is pruned. The table is small and is loaded into memory at startup.
+ */
+@Entity
+@Table(
+        name = "revoked_tokens",
+        indexes = {
+                @Index(name = "idx_revoked_jti", columnList = "jti", unique = true),
+                @Index(name = "idx_revoked_expires_at", columnList = "expires_at"),
+                @Index(name = "idx_revoked_created_at", columnList = "created_at")
+        }
+)
+@Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
+public class RevokedToken extends BaseEntity {
+
+    /** Token id ("jti" claim) of the revoked access token. */
+    @Column(nullable = false, unique = true, length = 64)
+    private String jti;
+
+    /** Expiry ("exp") of the revoked token; the row can be deleted afterwards. */
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+}
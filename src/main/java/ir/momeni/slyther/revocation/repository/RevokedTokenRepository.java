@@ -0,0 +1,45 @@
+package ir.momeni.slyther.revocation.repository;
+
+import ir.momeni.slyther.revocation.entity.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+
+
+/**
+ * Repository for {@link RevokedToken} entries (persisted access-token denylist).
+ */
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, Long> {
+
+    /**
+     * Loads all revocations that still matter (token not yet expired).
+     *
+     * @param now current time
+     * @return live revocations
+     */
+    List<RevokedToken> findByExpiresAtAfter(Instant now);
+
+    /**
+     * Loads revocations recorded since a point in time (incremental sync between nodes).
+     *
+     * @param since lower bound (exclusive) on the row's creation time
+     * @return revocations created after {@code since}
+     */
+    List<RevokedToken> findByCreatedAtAfter(Instant since);
+
+    /**
+     * Deletes revocations whose tokens have expired.
+     *
+     * @param now current time
+     * @return number of deleted rows
+     */
+    @Transactional
+    @Modifying
+    @Query("delete from RevokedToken t where t.expiresAt <= :now")
+    int deleteExpired(@Param("now") Instant now);
+}
@@ -0,0 +1,140 @@
+package ir.momeni.slyther.revocation.service;
+
+import ir.momeni.slyther.common.util.BloomFilter;
+import ir.momeni.slyther.config.AppProperties;
+import ir.momeni.slyther.revocation.entity.RevokedToken;
+import ir.momeni.slyther.revocation.repository.RevokedTokenRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * In-memory access-token denylist keyed by the "jti" claim.
+ * <p>
+ * Request path ({@link #isRevoked(String)}):
+ * - A {@link BloomFilter} answers "definitely not revoked" for practically every token
+ *   without touching the exact set or the DB.
+ * - Bloom positives are confirmed against an exact in-memory map (jti → exp).
+ * <p>
+ * Persistence and cluster sync:
+ * - Every revocation is written to {@code revoked_tokens}; the table is loaded at startup.
+ * - Each node periodically pulls rows created by other nodes (with a small overlap window).
+ * - Expired entries are pruned from memory and DB, and the Bloom filter is rebuilt,
+ *   since Bloom filters cannot delete.
+ * <p>
+ * Writers (revoke / sync / prune) serialize on this instance; readers never block.
+ */
+@Service
+public class TokenRevocationService {
+
+    /** Overlap for incremental sync, covering commit delays and clock skew between nodes. */
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(30);
+
+    private final RevokedTokenRepository repo;
+    private final AppProperties.Security.Revocation cfg;
+
+    /** Exact set: jti → token expiry (epoch millis). */
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>();
+
+    private volatile BloomFilter bloom;
+    private Instant lastSync = Instant.EPOCH;
+
+    public TokenRevocationService(RevokedTokenRepository repo, AppProperties props) {
+        this.repo = repo;
+        this.cfg = props.getSecurity().getRevocation();
+        this.bloom = newFilter(0);
+    }
+
+
+    /** Loads the live revocations from the DB. */
+    @PostConstruct
+    synchronized void load() {
+        Instant now = Instant.now();
+        for (RevokedToken t : repo.findByExpiresAtAfter(now)) {
+            revoked.put(t.getJti(), t.getExpiresAt().toEpochMilli());
+        }
+        lastSync = now;
+        rebuild();
+    }
+
+
+    /**
+     * Checks whether an access token has been revoked.
+     *
+     * @param jti the token's "jti" claim (tokens without one are never considered revoked)
+     * @return true if the token is on the denylist
+     */
+    public boolean isRevoked(String jti) {
+        if (jti == null || !bloom.mightContain(jti)) return false;
+        return revoked.containsKey(jti);
+    }
+
+
+    /**
+     * Revokes an access token until its expiry.
+     *
+     * @param jti       token id
+     * @param expiresAt token expiry; revocations of already expired tokens are ignored
+     */
+    public synchronized void revoke(String jti, Instant expiresAt) {
+        if (jti == null || expiresAt == null || !expiresAt.isAfter(Instant.now())) return;
+        if (revoked.putIfAbsent(jti, expiresAt.toEpochMilli()) != null) return;
+        bloom.put(jti);
+        try {
+            repo.save(RevokedToken.builder().jti(jti).expiresAt(expiresAt).build());
+        } catch (DataIntegrityViolationException alreadyStored) {
+            // Revoked concurrently on another node: the row exists, nothing else to do
+        }
+    }
+
+
+    /** Pulls revocations recorded by other nodes. */
+    @Scheduled(initialDelayString = "${app.security.revocation.sync-interval:PT10S}",
+            fixedDelayString = "${app.security.revocation.sync-interval:PT10S}")
+    public synchronized void sync() {
+        Instant now = Instant.now();
+        for (RevokedToken t : repo.findByCreatedAtAfter(lastSync.minus(SYNC_OVERLAP))) {
+            if (t.getExpiresAt().isAfter(now) && revoked.putIfAbsent(t.getJti(), t.getExpiresAt().toEpochMilli()) == null) {
+                bloom.put(t.getJti());
+            }
+        }
+        lastSync = now;
+    }
+
+
+    /** Drops expired revocations from memory and DB, then rebuilds the Bloom filter. */
+    @Scheduled(initialDelayString = "${app.security.revocation.prune-interval:PT5M}",
+            fixedDelayString = "${app.security.revocation.prune-interval:PT5M}")
+    public synchronized void prune() {
+        long now = System.currentTimeMillis();
+        revoked.values().removeIf(exp -> exp <= now);
+        rebuild();
+        repo.deleteExpired(Instant.ofEpochMilli(now));
+    }
+
+
+    /** @return number of live revocations held in memory */
+    public int size() {
+        return revoked.size();
+    }
+
+
+    /** Builds a fresh filter from the exact set (caller holds the monitor). */
+    private void rebuild() {
+        BloomFilter next = newFilter(revoked.size());
+        for (String jti : revoked.keySet()) next.put(jti);
+        bloom = next;
+    }
+
+
+    private BloomFilter newFilter(int currentSize) {
+        return new BloomFilter(Math.max(cfg.getExpectedEntries(), currentSize * 2), cfg.getFalsePositiveRate());
+    }
+}
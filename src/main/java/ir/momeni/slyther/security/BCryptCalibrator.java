@@ -0,0 +1,58 @@
+package ir.momeni.slyther.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+
+/**
+ * Picks the bcrypt work factor for this machine: the highest strength whose hash takes at
+ * most the target time.
+ * <p>
+ * Each strength step doubles the work, so one strength ({@code min}) is timed (best of a few
+ * runs, after warm-up) and the others are extrapolated; the chosen strength is then timed once
+ * and lowered by one step if it overshoots clearly. The result is clamped to [min, max].
+ */
+@Slf4j
+public final class BCryptCalibrator {
+
+    private static final String SAMPLE = "Calibrate-Password-123";
+    private static final int RUNS = 3;
+
+    private BCryptCalibrator() { }
+
+
+    /**
+     * @param target desired time of one hash (= one login verification)
+     * @param min    lowest acceptable strength (security floor)
+     * @param max    highest strength to consider
+     * @return strength in [min, max]
+     */
+    public static int calibrate(Duration target, int min, int max) {
+        long targetNanos = target.toNanos();
+        long base = measure(min);
+        int strength = min;
+        while (strength < max && base << (strength + 1 - min) <= targetNanos) strength++;
+
+        long actual = strength == min ? base : measure(strength);
+        if (strength > min && actual > targetNanos * 3 / 2) strength--;
+        log.info("bcrypt calibration: strength {} takes ~{} ms (target {} ms, strength {} took {} ms)",
+                strength, (base << (strength - min)) / 1_000_000, target.toMillis(), min, base / 1_000_000);
+        return strength;
+    }
+
+
+    /** Best of {@link #RUNS} hashes at a strength, in nanoseconds. */
+    private static long measure(int strength) {
+        BCryptPasswordEncoder enc = new BCryptPasswordEncoder(strength);
+        enc.encode(SAMPLE);   // warm-up (JIT, SecureRandom seeding)
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long t = System.nanoTime();
+            enc.encode(SAMPLE);
+            best = Math.min(best, System.nanoTime() - t);
+        }
+        return best;
+    }
+}
@@ -1,6 +1,9 @@
 package ir.momeni.slyther.security;
 
-import ir.momeni.slyther.user.repository.UserRepository;
+import io.jsonwebtoken.Claims;
+import ir.momeni.slyther.config.AppProperties;
+import ir.momeni.slyther.revocation.service.TokenRevocationService;
+import ir.momeni.slyther.user.service.UserCache;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -9,12 +12,15 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 
@@ -23,15 +29,22 @@ import java.util.Set;
  * <p>
  * Behavior:
  * - Skips certain public/infra paths and CORS preflight (OPTIONS) requests.
- * - If a Bearer token is present, parses it and loads the corresponding user.
+ * - If a Bearer token is present, parses it and resolves the principal:
+ *   in claims-only mode ({@code app.security.jwt.claims-only=true}) from the token's compact
+ *   claims ({@link TokenClaims}), otherwise (or when a claim is missing) by loading the user from the DB
+ *   (through the {@link UserCache}).
  * - On success, sets a {@link UsernamePasswordAuthenticationToken} in the {@link SecurityContextHolder}.
- * - On failure (invalid/expired token), it does not authenticate; protected routes will later return 401.
+ * - Tokens on the denylist or from an older token epoch ({@link TokenEpochRegistry}) are ignored.
+ * - On failure (invalid/expired/revoked token), it does not authenticate; protected routes will later return 401.
  */
 @Component
 @RequiredArgsConstructor
 public class JwtAuthFilter extends OncePerRequestFilter {
     private final JwtService jwtService;
-    private final UserRepository userRepo;
+    private final UserCache userCache;
+    private final AppProperties props;
+    private final TokenRevocationService revocations;
+    private final TokenEpochRegistry epochs;
 
     // Paths that must not go through the JWT filter
     private static final Set<String> SKIP_PREFIXES = Set.of(
@@ -39,7 +52,9 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             "/v3/api-docs",     // swagger JSON + groups (/v3/api-docs/core)
             "/swagger-ui",      // Swagger UI
             "/swagger-ui.html", // UI alias
-            "/actuator"         // health, etc.
+            "/actuator/health", // probes (other actuator endpoints need an admin token)
+            "/actuator/info",
+            "/.well-known"      // JWKS (public keys)
     );
 
 
@@ -70,7 +85,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
      * Core filtering logic:
      * - If already authenticated, continue the chain as-is.
      * - Otherwise, try to extract and validate a Bearer token.
-     * - On valid token: load the user and set authentication in the security context.
+     * - On valid token: resolve the principal (claims or DB) and set authentication in the security context.
      * - On invalid token: ignore (no auth set), the downstream security layer will handle 401s.
      */
     @Override
@@ -88,12 +103,18 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             String token = header.substring(7);
             try {
                 var claims = jwtService.parse(token).getBody();
-                var username = claims.getSubject();
-                userRepo.findByUsername(username).ifPresent(user -> {
-                    var auth = new UsernamePasswordAuthenticationToken(user, null, user.getAuthorities());
-                    auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(req));
-                    SecurityContextHolder.getContext().setAuthentication(auth);
-                });
+
+                // Revoked (logged out) tokens: in-memory Bloom + exact check, no DB access
+                boolean usable = !revocations.isRevoked(claims.getId());
+
+                // Issued before the user logged out everywhere: in-memory epoch map, no DB access
+                usable = usable && epochs.isCurrent(TokenClaims.userId(claims), TokenClaims.epoch(claims));
+
+                // Only the authentication decision happens here; the chain runs once, below
+                if (usable && (!props.getSecurity().getJwt().isClaimsOnly() || !authenticateFromClaims(claims, req))) {
+                    var username = claims.getSubject();
+                    userCache.findByUsername(username).ifPresent(user -> authenticate(user, user.getAuthorities(), req));
+                }
             } catch (Exception ignored) {
                 // Invalid token: auth is not set; protected endpoints will later return 401.
             }
@@ -101,4 +122,28 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
         chain.doFilter(req, res);
     }
+
+
+    /**
+     * Claims-only path: authenticates with a {@link TokenPrincipal} built from the token.
+     *
+     * @return false if a required claim is missing, so the caller can fall back to the DB path
+     */
+    private boolean authenticateFromClaims(Claims claims, HttpServletRequest req) {
+        Long userId = TokenClaims.userId(claims);
+        List<GrantedAuthority> authorities = TokenClaims.authorities(claims);
+        if (userId == null || authorities == null || claims.getSubject() == null) return false;
+
+        authenticate(new TokenPrincipal(userId, claims.getSubject()), authorities, req);
+        return true;
+    }
+
+
+    /** Places an authenticated token for the given principal into the security context. */
+    private static void authenticate(Object principal, Collection<? extends GrantedAuthority> authorities,
+                                     HttpServletRequest req) {
+        var auth = new UsernamePasswordAuthenticationToken(principal, null, authorities);
+        auth.setDetails(new WebAuthenticationDetailsSource().buildDetails(req));
+        SecurityContextHolder.getContext().setAuthentication(auth);
+    }
 }
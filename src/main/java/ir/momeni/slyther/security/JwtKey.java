@@ -0,0 +1,16 @@
+package ir.momeni.slyther.security;
+
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.time.Instant;
+
+
+/**
+ * One asymmetric key of the {@link JwtKeyRing}.
+ *
+ * @param kid         key id, written to the JWS "kid" header
+ * @param privateKey  signing half (only used while this key is the active one)
+ * @param publicKey   verification half (published via JWKS)
+ * @param activatesAt moment from which the key may be used for signing
+ */
+public record JwtKey(String kid, PrivateKey privateKey, PublicKey publicKey, Instant activatesAt) { }
@@ -0,0 +1,69 @@
+package ir.momeni.slyther.security;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * In-memory snapshot of the asymmetric JWT keys.
+ * <p>
+ * Holds:
+ * - the active key (used to sign new access tokens)
+ * - all keys still accepted for verification (the active one, recently superseded ones,
+ *   and pre-published upcoming ones), indexed by "kid"
+ * <p>
+ * The snapshot is replaced atomically by {@code SigningKeyService}; readers on the request
+ * path never block and never touch the database.
+ */
+@Component
+public class JwtKeyRing {
+
+    /** Immutable view of the ring. */
+    private record Snapshot(JwtKey active, Map<String, JwtKey> byKid) { }
+
+    private volatile Snapshot snapshot = new Snapshot(null, Map.of());
+
+
+    /**
+     * Replaces the ring contents.
+     *
+     * @param active       key to sign with (may be null if none is active yet)
+     * @param verification all keys accepted for verification (should include {@code active})
+     */
+    public void install(JwtKey active, Collection<JwtKey> verification) {
+        Map<String, JwtKey> byKid = new LinkedHashMap<>();
+        for (JwtKey k : verification) byKid.put(k.kid(), k);
+        if (active != null) byKid.put(active.kid(), active);
+        snapshot = new Snapshot(active, Map.copyOf(byKid));
+    }
+
+
+    /**
+     * @return the key new tokens are signed with
+     * @throws IllegalStateException if no key has been activated yet
+     */
+    public JwtKey active() {
+        JwtKey k = snapshot.active();
+        if (k == null) throw new IllegalStateException("No active JWT signing key");
+        return k;
+    }
+
+
+    /**
+     * @param kid key id from a JWS header
+     * @return the matching verification key, or null if unknown/expired
+     */
+    public JwtKey find(String kid) {
+        return kid != null ? snapshot.byKid().get(kid) : null;
+    }
+
+
+    /** @return all keys currently accepted for verification */
+    public List<JwtKey> verificationKeys() {
+        return List.copyOf(snapshot.byKid().values());
+    }
+}
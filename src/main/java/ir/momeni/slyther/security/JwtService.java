@@ -2,9 +2,14 @@ package ir.momeni.slyther.security;
 
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.momeni.slyther.common.util.HashUtils;
 import ir.momeni.slyther.config.AppProperties;
 import org.springframework.stereotype.Service;
 
+import java.nio.ByteBuffer;
 import java.security.Key;
 import java.time.Instant;
 import java.util.Date;
@@ -15,25 +20,49 @@ import java.util.Map;
  * Service responsible for issuing and validating JSON Web Tokens (JWTs).
  * <p>
  * Configuration is sourced from {@link AppProperties}:
- * - Secret: symmetric signing key (HS256). Use a strong, high-entropy secret (>= 256 bits).
+ * - Algorithm: ES256 (asymmetric, keys from the {@link JwtKeyRing}) or HS256 (shared secret).
+ * - Secret: symmetric signing key (HS256 only). Use a strong, high-entropy secret (>= 256 bits).
  * - Issuer: identifies your token issuer (included in the "iss" claim).
  * - Access token expiration (minutes): controls short-lived access token lifetime.
  * <p>
  * Notes:
  * - This service generates short-lived access tokens; refresh tokens should be managed elsewhere.
  * - Clock skew handling is delegated to the jjwt defaults unless configured at the parser level.
+ * - A single immutable (thread-safe) {@link JwtParser} is built once and reused for every request.
+ * - In ES256 mode tokens carry a "kid" header; the parser resolves the verification key by kid,
+ *   so other services can verify tokens locally with the public keys from the JWKS endpoint.
+ * - Optionally ({@code app.security.jwt.cache.enabled}), verified tokens are kept in a
+ *   {@link VerifiedTokenCache} keyed by token digest until their "exp"; its counters are
+ *   published as {@code cache.gets}, {@code cache.evictions} and {@code cache.size} with tag
+ *   {@code cache=jwt-verified}.
  */
 @Service
 public class JwtService {
-    private final Key key;              // HMAC signing key derived from configured secret
+    private final Key key;              // HMAC signing key derived from configured secret (HS256 mode)
+    private final JwtKeyRing keyRing;   // asymmetric keys (ES256 mode)
+    private final SignatureAlgorithm algorithm;
     private final String issuer;        // "iss" claim value
     private final long accessExpMillis; // access token TTL in milliseconds
+    private final JwtParser parser;     // immutable, thread-safe parser reused across requests
+    private final VerifiedTokenCache cache; // null when the verified-token cache is disabled
+    private final TokenMinter minter;   // "jti" generator
 
-    public JwtService(AppProperties props) {
+    public JwtService(AppProperties props, JwtKeyRing keyRing, TokenMinter minter, MeterRegistry meters) {
         var cfg = props.getSecurity().getJwt();
         this.key = Keys.hmacShaKeyFor(cfg.getSecret().getBytes());         // Requires a sufficiently long secret
+        this.keyRing = keyRing;
+        this.minter = minter;
+        this.algorithm = SignatureAlgorithm.forName(cfg.getAlgorithm());
+        if (algorithm != SignatureAlgorithm.ES256 && algorithm != SignatureAlgorithm.HS256) {
+            throw new IllegalArgumentException("Unsupported JWT algorithm: " + cfg.getAlgorithm());
+        }
         this.issuer = cfg.getIssuer();
         this.accessExpMillis = cfg.getAccessExpMins() * 60_000L;           // minutes -> milliseconds
+        this.parser = algorithm == SignatureAlgorithm.ES256
+                ? Jwts.parserBuilder().setSigningKeyResolver(new KeyRingResolver(keyRing)).build()
+                : Jwts.parserBuilder().setSigningKey(key).build();
+        this.cache = cfg.getCache().isEnabled() ? new VerifiedTokenCache(cfg.getCache().getMaxEntries()) : null;
+        if (cache != null) registerMetrics(cache, meters);
     }
 
 
@@ -42,18 +71,26 @@ public class JwtService {
      *
      * @param subject the token subject (typically a username or user ID)
      * @param claims  additional custom claims to embed (e.g., roles, tenant, etc.)
-     * @return compact JWT string signed with HS256
+     * @return compact JWT string signed with ES256 (active ring key) or HS256
      */
     public String generateAccessToken(String subject, Map<String, Object> claims) {
         Instant now = Instant.now();
-        return Jwts.builder()
+        JwtBuilder builder = Jwts.builder()
                 .setClaims(claims)                                        // custom claims payload
                 .setSubject(subject)                                      // "sub"
+                .setId(minter.mintId())                                   // "jti" (revocation handle)
                 .setIssuer(issuer)                                        // "iss"
                 .setIssuedAt(Date.from(now))                              // "iat"
-                .setExpiration(new Date(now.toEpochMilli() + accessExpMillis)) // "exp"
-                .signWith(key, SignatureAlgorithm.HS256)                  // HMAC-SHA256 signature
-                .compact();
+                .setExpiration(new Date(now.toEpochMilli() + accessExpMillis)); // "exp"
+
+        if (algorithm == SignatureAlgorithm.ES256) {
+            JwtKey active = keyRing.active();
+            builder.setHeaderParam(JwsHeader.KEY_ID, active.kid())       // "kid" for key lookup
+                    .signWith(active.privateKey(), SignatureAlgorithm.ES256); // ECDSA P-256 signature
+        } else {
+            builder.signWith(key, SignatureAlgorithm.HS256);              // HMAC-SHA256 signature
+        }
+        return builder.compact();
     }
 
 
@@ -68,6 +105,52 @@ public class JwtService {
      * @throws JwtException if token is invalid, expired, or signature verification fails
      */
     public Jws<Claims> parse(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token);
+        if (cache == null) return parser.parseClaimsJws(token);
+
+        // Digest as cache key: never keep raw bearer tokens in memory longer than needed
+        ByteBuffer digest = ByteBuffer.wrap(HashUtils.sha256(token));
+        long now = System.currentTimeMillis();
+        Jws<Claims> cached = cache.get(digest, now);
+        if (cached != null) return cached;
+
+        Jws<Claims> jws = parser.parseClaimsJws(token);
+        Date exp = jws.getBody().getExpiration();
+        if (exp != null) cache.put(digest, jws, exp.getTime(), now);
+        return jws;
+    }
+
+
+    /** Publishes the verified-token cache counters (read from {@link VerifiedTokenCache#stats()} on scrape). */
+    private static void registerMetrics(VerifiedTokenCache cache, MeterRegistry meters) {
+        FunctionCounter.builder("cache.gets", cache, c -> c.stats().hits())
+                .tags("cache", "jwt-verified", "result", "hit")
+                .description("Token verifications answered from the cache").register(meters);
+        FunctionCounter.builder("cache.gets", cache, c -> c.stats().misses())
+                .tags("cache", "jwt-verified", "result", "miss")
+                .description("Token verifications that checked the signature").register(meters);
+        FunctionCounter.builder("cache.evictions", cache, c -> c.stats().evictions())
+                .tags("cache", "jwt-verified")
+                .description("Verified tokens dropped by expiry or capacity").register(meters);
+        Gauge.builder("cache.size", cache, c -> c.stats().size())
+                .tags("cache", "jwt-verified")
+                .description("Verified tokens currently cached").register(meters);
+    }
+
+
+    /**
+     * Resolves the verification key of a JWS from its "kid" header.
+     * Unknown or retired kids are rejected.
+     */
+    private static final class KeyRingResolver extends SigningKeyResolverAdapter {
+        private final JwtKeyRing ring;
+
+        KeyRingResolver(JwtKeyRing ring) { this.ring = ring; }
+
+        @Override
+        public Key resolveSigningKey(JwsHeader header, Claims claims) {
+            JwtKey k = ring.find(header.getKeyId());
+            if (k == null) throw new JwtException("Unknown signing key id");
+            return k.publicKey();
+        }
     }
 }
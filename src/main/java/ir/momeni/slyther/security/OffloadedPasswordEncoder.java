@@ -0,0 +1,138 @@
+package ir.momeni.slyther.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import ir.momeni.slyther.common.api.ServiceBusyException;
+import ir.momeni.slyther.config.AppProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * {@link PasswordEncoder} that runs the wrapped (CPU-heavy) encoder on a dedicated, core-sized
+ * thread pool, so a login storm cannot occupy every request thread with hashing.
+ * <p>
+ * Load shedding:
+ * - the pool has {@code threads} workers and a bounded queue of {@code queue-capacity};
+ *   when both are full, the call fails at once
+ * - a queued task that waited longer than {@code max-wait} is dropped unrun (its client is
+ *   likely gone, and running it would only delay the tasks behind it)
+ * Both throw {@link ServiceBusyException} (HTTP 503 with {@code Retry-After}).
+ * <p>
+ * The caller still waits for the result, but CPU use is capped and excess work is rejected
+ * early instead of piling up. Metrics: {@code auth.password.queue} (gauge),
+ * {@code auth.password.active} (gauge), {@code auth.password.wait} and
+ * {@code auth.password.hash} (timers), {@code auth.password.rejected} (counter).
+ */
+@Slf4j
+public class OffloadedPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor pool;
+    private final long maxWaitNanos;
+    private final Duration retryAfter;
+    private final Timer waitTimer;
+    private final Timer hashTimer;
+    private final Counter rejected;
+
+    public OffloadedPasswordEncoder(PasswordEncoder delegate, AppProperties.Security.Password cfg, MeterRegistry meters) {
+        this.delegate = delegate;
+        int threads = cfg.getThreads() > 0 ? cfg.getThreads() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger seq = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, cfg.getQueueCapacity())), r -> {
+                    Thread t = new Thread(r, "password-hash-" + seq.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        this.maxWaitNanos = cfg.getMaxWait().toNanos();
+        this.retryAfter = cfg.getRetryAfter();
+
+        Gauge.builder("auth.password.queue", pool, p -> p.getQueue().size())
+                .description("Password hashing tasks waiting for a thread").register(meters);
+        Gauge.builder("auth.password.active", pool, ThreadPoolExecutor::getActiveCount)
+                .description("Password hashing tasks running").register(meters);
+        this.waitTimer = Timer.builder("auth.password.wait")
+                .description("Time password hashing tasks spent queued").publishPercentileHistogram().register(meters);
+        this.hashTimer = Timer.builder("auth.password.hash")
+                .description("Time spent hashing or verifying a password").register(meters);
+        this.rejected = Counter.builder("auth.password.rejected")
+                .description("Password hashing tasks shed (queue full or waited too long)").register(meters);
+        log.info("Password hashing on {} thread(s), queue {}, max wait {}", threads, cfg.getQueueCapacity(), cfg.getMaxWait());
+    }
+
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return call(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return call(() -> delegate.matches(rawPassword, encodedPassword));
+    }
+
+    /** Only compares hash parameters; runs on the caller. */
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+
+    private <T> T call(Callable<T> work) {
+        long queuedAt = System.nanoTime();
+        Future<T> f;
+        try {
+            f = pool.submit(() -> {
+                long waited = System.nanoTime() - queuedAt;
+                waitTimer.record(waited, TimeUnit.NANOSECONDS);
+                if (waited > maxWaitNanos) throw busy();
+                long start = System.nanoTime();
+                try {
+                    return work.call();
+                } finally {
+                    hashTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            throw busy();
+        }
+
+        try {
+            return f.get();
+        } catch (InterruptedException e) {
+            f.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while hashing password", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            if (e.getCause() instanceof Error err) throw err;
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+
+    private ServiceBusyException busy() {
+        rejected.increment();
+        return new ServiceBusyException("Authentication is busy, retry later", retryAfter);
+    }
+
+
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
+}
@@ -1,6 +1,6 @@
 package ir.momeni.slyther.security;
 
-import ir.momeni.slyther.config.AppProperties;
+import ir.momeni.slyther.ratelimit.service.RateLimitService;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,75 +12,52 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.time.Instant;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 
 /**
- * Simple in-memory sliding-window-ish (fixed window per second) rate limiter for selected endpoints.
+ * Per-route, per-client rate limiter.
  * <p>
  * Scope:
- * - Applies only to POST /api/auth/login and POST /api/auth/forgot-password.
- * - Skips Swagger/OpenAPI/Actuator paths and all non-POST or CORS preflight (OPTIONS) requests.
+ * - Applies to the routes configured under {@code app.security.ratelimit.policies}
+ *   (by default POST /api/auth/login and POST /api/auth/forgot-password).
+ * - Skips Swagger/OpenAPI/Actuator paths and CORS preflight (OPTIONS) requests.
  * <p>
  * Implementation details:
- * - Uses a per-(path|clientIp) fixed window with a counter reset every {@code windowSeconds}.
- * - Counters are stored in a concurrent map; per-window mutations are synchronized on the Window object.
+ * - Policy matching and accounting are delegated to {@link RateLimitService}; memory is bounded
+ *   by {@code max-tracked-keys}.
  * - When the limit is exceeded, responds with HTTP 429 and a Retry-After header in seconds.
  * <p>
  * Notes:
- * - This is local-node memory only; if you run behind multiple instances, you likely want a shared store (e.g., Redis).
- * - Buckets can grow with unique client IPs; consider eviction if needed for long-running processes.
- * - The windowing strategy is "fixed window" (not token bucket / leaky bucket); bursts at window boundaries may pass.
+ * - With the default "memory" store limits are per node; set {@code app.security.ratelimit.store=jdbc}
+ *   to share them across instances.
  */
 @Component
 @RequiredArgsConstructor
 public class RateLimitFilter extends OncePerRequestFilter {
 
-    private final AppProperties props;
-
-
-    /** Per-client window state: window start (seconds) + atomic request count. */
-    private static class Window {
-        volatile long windowStartSec;
-        AtomicInteger count = new AtomicInteger(0);
-    }
-
-
-    /** Buckets keyed by "path|ip". Concurrent for multi-threaded servlet container access. */
-    private final Map<String, Window> buckets = new ConcurrentHashMap<>();
+    private final RateLimitService limiter;
 
     // Paths that must always be excluded from rate limiting
     private static final Set<String> ALWAYS_SKIP_PREFIXES = Set.of(
             "/v3/api-docs", "/swagger-ui", "/swagger-ui.html", "/actuator"
     );
 
-    // Only these two endpoints (and only with POST) are rate limited
-    private static final String LOGIN_PATH = "/api/auth/login";
-    private static final String FORGOT_PATH = "/api/auth/forgot-password";
-
 
     /**
      * Decide whether to bypass this filter for the current request.
      * <p>
      * Skips:
-     * - Any method other than POST
      * - OPTIONS (CORS preflight)
      * - Swagger/OpenAPI/Actuator paths
-     * Applies only to:
-     * - POST /api/auth/login
-     * - POST /api/auth/forgot-password
+     * - Requests matching no rate-limit policy
      */
     @Override
     protected boolean shouldNotFilter(HttpServletRequest req) {
         final String path = req.getRequestURI();
         final String method = req.getMethod();
 
-        // Do not rate limit non-POST methods and preflight OPTIONS
-        if (!HttpMethod.POST.matches(method)) return true;
+        // Do not rate limit preflight OPTIONS
         if (HttpMethod.OPTIONS.matches(method)) return true;
 
         // Exclude Swagger/OpenAPI/Actuator completely
@@ -88,13 +65,13 @@ public class RateLimitFilter extends OncePerRequestFilter {
             if (path.startsWith(pfx)) return true;
         }
 
-        // Only POST on these two paths should be filtered
-        return !(LOGIN_PATH.equals(path) || FORGOT_PATH.equals(path));
+        // Only routes with a configured policy should be filtered
+        return limiter.match(method, path) == null;
     }
 
 
     /**
-     * Enforces the per-(path|ip) rate limit using a fixed time window.
+     * Enforces the per-(route, ip) rate limit.
      * On limit exceed:
      * - Returns 429 Too Many Requests
      * - Sets Retry-After (seconds)
@@ -104,48 +81,13 @@ public class RateLimitFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
             throws ServletException, IOException {
 
-        final String path = req.getRequestURI();
-
-
-        // Choose rate-limit bucket configuration based on the exact path
-        final var rl = LOGIN_PATH.equals(path)
-                ? props.getSecurity().getRatelimit().getLogin()
-                : props.getSecurity().getRatelimit().getForgotPassword();
-
-        final int limit = rl.getMaxRequests();
-        final int windowSec = rl.getWindowSeconds();
-
+        final var policy = limiter.match(req.getMethod(), req.getRequestURI());
+        if (policy != null) {
 
-        // Derive client IP (prefers X-Forwarded-For, then X-Real-IP, then remote addr)
-        String ip = extractClientIp(req);
-        final String key = path + "|" + ip;
-        final long nowSec = Instant.now().getEpochSecond();
-
-
-        // Initialize or fetch the current window for this (path|ip)
-        Window w = buckets.computeIfAbsent(key, k -> {
-            Window nw = new Window();
-            nw.windowStartSec = nowSec;
-            return nw;
-        });
-
-
-        // Synchronize per-window to ensure atomic reset+increment semantics
-        synchronized (w) {
-
-
-            // Reset the window if the current window has elapsed
-            if (nowSec - w.windowStartSec >= windowSec) {
-                w.windowStartSec = nowSec;
-                w.count.set(0);
-            }
-
-            // Increment and compare against limit
-            int c = w.count.incrementAndGet();
-            if (c > limit) {
-
-                // Compute remaining seconds in the current window for Retry-After
-                int retry = (int) Math.max(1, windowSec - (nowSec - w.windowStartSec));
+            // Derive client IP (prefers X-Forwarded-For, then X-Real-IP, then remote addr)
+            long waitMillis = limiter.acquire(policy, extractClientIp(req));
+            if (waitMillis > 0) {
+                long retry = Math.max(1, (waitMillis + 999) / 1000);
                 res.setStatus(429);
                 res.setHeader("Retry-After", String.valueOf(retry));
                 res.setContentType(MediaType.APPLICATION_JSON_VALUE);
@@ -156,7 +98,6 @@ public class RateLimitFilter extends OncePerRequestFilter {
             }
         }
 
-
         // Continue the chain for requests within the limit
         chain.doFilter(req, res);
     }
@@ -0,0 +1,99 @@
+package ir.momeni.slyther.security;
+
+import io.jsonwebtoken.Claims;
+import ir.momeni.slyther.user.entity.User;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Compact claim profile embedded in access tokens.
+ * <p>
+ * Claims:
+ * - {@code uid}: numeric user id
+ * - {@code rol}: role codes without the "ROLE_" prefix (e.g. ["USER","ADMIN"])
+ * - {@code tep}: the user's token epoch at issue time (omitted while 0), see {@link TokenEpochRegistry}
+ * <p>
+ * Keeping claim names and values short keeps the token (and every Authorization header) small,
+ * while still carrying enough information to authenticate a request without a DB lookup.
+ */
+public final class TokenClaims {
+
+    /** Claim holding the numeric user id. */
+    public static final String USER_ID = "uid";
+
+    /** Claim holding the compact role codes. */
+    public static final String ROLES = "rol";
+
+    /** Claim holding the user's token epoch. */
+    public static final String EPOCH = "tep";
+
+    /** Spring Security role prefix stripped from / re-added to role codes. */
+    private static final String ROLE_PREFIX = "ROLE_";
+
+    private TokenClaims() { }
+
+
+    /**
+     * Builds the compact claim map for the given user.
+     *
+     * @param user authenticated user (id and roles must be loaded)
+     * @return mutable claim map suitable for {@link JwtService#generateAccessToken}
+     */
+    public static Map<String, Object> of(User user) {
+        List<String> codes = new ArrayList<>();
+        for (GrantedAuthority a : user.getAuthorities()) {
+            String name = a.getAuthority();
+            codes.add(name.startsWith(ROLE_PREFIX) ? name.substring(ROLE_PREFIX.length()) : name);
+        }
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(USER_ID, user.getId());
+        claims.put(ROLES, codes);
+        if (user.getTokenEpoch() > 0) claims.put(EPOCH, user.getTokenEpoch());
+        return claims;
+    }
+
+
+    /**
+     * Reads the token epoch claim.
+     *
+     * @return the epoch, or 0 when the claim is missing (tokens issued at epoch 0)
+     */
+    public static long epoch(Claims claims) {
+        Object v = claims.get(EPOCH);
+        return (v instanceof Number n) ? n.longValue() : 0;
+    }
+
+
+    /**
+     * Reads the user id claim.
+     *
+     * @return the user id, or null if the claim is missing or malformed
+     */
+    public static Long userId(Claims claims) {
+        Object v = claims.get(USER_ID);
+        return (v instanceof Number n) ? n.longValue() : null;
+    }
+
+
+    /**
+     * Rebuilds Spring Security authorities from the role codes claim.
+     *
+     * @return authorities, or null if the claim is missing or malformed
+     */
+    public static List<GrantedAuthority> authorities(Claims claims) {
+        if (!(claims.get(ROLES) instanceof List<?> codes)) return null;
+        List<GrantedAuthority> out = new ArrayList<>(codes.size());
+        for (Object code : codes) {
+            if (code == null) continue;
+            String s = code.toString();
+            out.add(new SimpleGrantedAuthority(s.startsWith(ROLE_PREFIX) ? s : ROLE_PREFIX + s));
+        }
+        return out;
+    }
+}
@@ -0,0 +1,125 @@
+package ir.momeni.slyther.security;
+
+import ir.momeni.slyther.config.AppProperties;
+import ir.momeni.slyther.user.repository.UserRepository;
+import ir.momeni.slyther.user.service.UserCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * In-memory map of recently bumped access-token epochs (user id → epoch), so
+ * {@link JwtAuthFilter} can reject tokens issued before a "log out everywhere" without a query.
+ * <p>
+ * Only users whose epoch changed within the access-token lifetime are held: once every token
+ * issued before the bump has expired, the entry carries no information and is pruned. So the
+ * map stays small however many users exist.
+ * <p>
+ * Cluster sync mirrors the revocation denylist: bumps made on this node apply at once (after
+ * commit); bumps from other nodes are pulled every {@code app.security.revocation.sync-interval}
+ * from {@code users.updated_at} (with an overlap window). A pulled epoch newer than the known one
+ * also evicts the user from the {@link UserCache}, so this node stops minting tokens with the
+ * old {@code tep} claim.
+ */
+@Component
+public class TokenEpochRegistry {
+
+    /** Overlap for incremental sync, covering commit delays and clock skew between nodes. */
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(30);
+
+    /** Epoch of a user and when it was set (epoch millis). */
+    private record Entry(long epoch, long since) { }
+
+    private final UserRepository users;
+    private final UserCache userCache;
+    private final Duration tokenLifetime;
+    private final Map<Long, Entry> epochs = new ConcurrentHashMap<>();
+    private Instant lastSync = Instant.EPOCH;
+
+    public TokenEpochRegistry(UserRepository users, UserCache userCache, AppProperties props) {
+        this.users = users;
+        this.userCache = userCache;
+        this.tokenLifetime = Duration.ofMinutes(props.getSecurity().getJwt().getAccessExpMins());
+    }
+
+
+    /** Loads the epochs bumped within the access-token lifetime. */
+    @PostConstruct
+    synchronized void load() {
+        Instant now = Instant.now();
+        pull(now.minus(tokenLifetime).minus(SYNC_OVERLAP));
+        lastSync = now;
+    }
+
+
+    /**
+     * @param userId     the token's user id (tokens without one are not checked)
+     * @param tokenEpoch the token's epoch ({@link TokenClaims#epoch})
+     * @return false if the user logged out everywhere after the token was issued
+     */
+    public boolean isCurrent(Long userId, long tokenEpoch) {
+        if (userId == null) return true;
+        Entry e = epochs.get(userId);
+        return e == null || tokenEpoch >= e.epoch();
+    }
+
+
+    /**
+     * Records a new epoch of a user; inside a transaction it takes effect after commit.
+     *
+     * @param userId the user id
+     * @param epoch  the user's new epoch
+     */
+    public void advance(Long userId, long epoch) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { put(userId, epoch, System.currentTimeMillis()); }
+            });
+        } else {
+            put(userId, epoch, System.currentTimeMillis());
+        }
+    }
+
+
+    /** Pulls epochs bumped on other nodes and forgets the ones no live token can predate. */
+    @Scheduled(initialDelayString = "${app.security.revocation.sync-interval:PT10S}",
+            fixedDelayString = "${app.security.revocation.sync-interval:PT10S}")
+    public synchronized void sync() {
+        Instant now = Instant.now();
+        pull(lastSync.minus(SYNC_OVERLAP));
+        lastSync = now;
+        long cutoff = now.minus(tokenLifetime).toEpochMilli();
+        epochs.values().removeIf(e -> e.since() < cutoff);
+    }
+
+
+    /** @return number of users currently tracked */
+    public int size() {
+        return epochs.size();
+    }
+
+
+    private void pull(Instant since) {
+        for (UserRepository.TokenEpoch t : users.findTokenEpochsUpdatedAfter(since)) {
+            Entry known = epochs.get(t.getId());
+            put(t.getId(), t.getTokenEpoch(), t.getUpdatedAt().toEpochMilli());
+            // The cached User still carries the previous epoch
+            if (known == null || t.getTokenEpoch() > known.epoch()) userCache.evict(t.getUsername());
+        }
+    }
+
+
+    private void put(Long userId, long epoch, long since) {
+        epochs.merge(userId, new Entry(epoch, since),
+                (old, e) -> e.epoch() > old.epoch() ? e : old);
+    }
+}
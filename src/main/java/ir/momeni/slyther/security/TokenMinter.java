@@ -0,0 +1,133 @@
+package ir.momeni.slyther.security;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.DrbgParameters;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+import static java.security.DrbgParameters.Capability.RESEED_ONLY;
+
+
+/**
+ * Mints opaque random tokens (refresh tokens, password-reset tokens, token ids).
+ * <p>
+ * Format: {@code <prefix><base64url(random bytes)>} without padding, e.g.
+ * {@code rt_Vq3...} (3 + 43 chars for 256 bits). The prefix tells the token's purpose
+ * at a glance (logs, secret scanners) and is part of the hashed value.
+ * <p>
+ * Performance:
+ * - Each thread owns a SHA-256 Hash_DRBG instance (seeded from the OS entropy source),
+ *   so bursty logins do not contend on one shared {@link SecureRandom}.
+ * - Random bytes and the encoded characters go into per-thread buffers;
+ *   the only allocation per token is the resulting String.
+ */
+@Component
+public class TokenMinter {
+
+    /** Token purposes and their prefixes. */
+    public enum Kind {
+        REFRESH("rt_"),
+        PASSWORD_RESET("prt_");
+
+        private final byte[] prefix;
+
+        Kind(String prefix) {
+            this.prefix = prefix.getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /** Entropy of prefixed tokens: 256 bits. */
+    public static final int TOKEN_BYTES = 32;
+
+    /** Entropy of unprefixed ids ("jti"): 128 bits. */
+    public static final int ID_BYTES = 16;
+
+    private static final byte[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_".getBytes(StandardCharsets.US_ASCII);
+
+    private static final ThreadLocal<State> STATE = ThreadLocal.withInitial(State::new);
+
+
+    /**
+     * Mints a 256-bit token of the given kind.
+     *
+     * @param kind token purpose (selects the prefix)
+     * @return e.g. "rt_" followed by 43 base64url characters
+     */
+    public String mint(Kind kind) {
+        State s = STATE.get();
+        return s.next(kind.prefix, s.token);
+    }
+
+
+    /**
+     * Mints a 128-bit unprefixed identifier (22 base64url characters), e.g. for the "jti" claim.
+     */
+    public String mintId() {
+        State s = STATE.get();
+        return s.next(null, s.id);
+    }
+
+
+    /** Per-thread generator plus scratch buffers. */
+    private static final class State {
+
+        private final SecureRandom random = newDrbg();
+        private final byte[] token = new byte[TOKEN_BYTES];
+        private final byte[] id = new byte[ID_BYTES];
+        private final byte[] out = new byte[8 + encodedLength(TOKEN_BYTES)];
+
+        String next(byte[] prefix, byte[] raw) {
+            random.nextBytes(raw);
+            int pos = 0;
+            if (prefix != null) {
+                System.arraycopy(prefix, 0, out, 0, prefix.length);
+                pos = prefix.length;
+            }
+            pos = encode(raw, raw.length, out, pos);
+            return new String(out, 0, pos, StandardCharsets.US_ASCII);
+        }
+    }
+
+
+    private static SecureRandom newDrbg() {
+        try {
+            return SecureRandom.getInstance("DRBG", DrbgParameters.instantiation(256, RESEED_ONLY, null));
+        } catch (NoSuchAlgorithmException e) {
+            // DRBG ships with every JDK 9+; fall back to the platform default just in case
+            return new SecureRandom();
+        }
+    }
+
+
+    /** Base64url without padding of {@code src[0..len)} into {@code dst} at {@code pos}; returns the new position. */
+    private static int encode(byte[] src, int len, byte[] dst, int pos) {
+        int i = 0;
+        for (; i + 3 <= len; i += 3) {
+            int v = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+            dst[pos++] = ALPHABET[v >>> 18];
+            dst[pos++] = ALPHABET[(v >>> 12) & 0x3f];
+            dst[pos++] = ALPHABET[(v >>> 6) & 0x3f];
+            dst[pos++] = ALPHABET[v & 0x3f];
+        }
+        int rest = len - i;
+        if (rest == 1) {
+            int v = (src[i] & 0xff) << 16;
+            dst[pos++] = ALPHABET[v >>> 18];
+            dst[pos++] = ALPHABET[(v >>> 12) & 0x3f];
+        } else if (rest == 2) {
+            int v = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8;
+            dst[pos++] = ALPHABET[v >>> 18];
+            dst[pos++] = ALPHABET[(v >>> 12) & 0x3f];
+            dst[pos++] = ALPHABET[(v >>> 6) & 0x3f];
+        }
+        return pos;
+    }
+
+
+    private static int encodedLength(int bytes) {
+        return (bytes * 4 + 2) / 3;
+    }
+}
@@ -0,0 +1,23 @@
+package ir.momeni.slyther.security;
+
+import java.security.Principal;
+
+
+/**
+ * Lightweight principal built purely from verified access-token claims.
+ * <p>
+ * Used in claims-only authentication mode, where the {@link JwtAuthFilter} does not
+ * load the {@code User} entity. {@link #getName()} returns the username so that
+ * {@code Authentication#getName()} keeps working for auditing and controllers.
+ *
+ * @param id       user id from the {@code uid} claim
+ * @param username username from the {@code sub} claim
+ */
+public record TokenPrincipal(Long id, String username) implements Principal {
+
+    @Override
+    public String getName() { return username; }
+
+    @Override
+    public String toString() { return username; }
+}
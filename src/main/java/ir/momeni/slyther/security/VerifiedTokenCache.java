@@ -0,0 +1,125 @@
+package ir.momeni.slyther.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jws;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Size-bounded cache of already verified access tokens.
+ * <p>
+ * Maps a token digest to its parsed {@link Jws}; every entry expires at the token's own
+ * {@code exp}, so a cached token is never accepted past its lifetime. This skips the HMAC
+ * verification and JSON decoding for tokens that clients send over and over again.
+ * <p>
+ * Eviction:
+ * - Expired entries are dropped on read and during sweeps.
+ * - When the cache is full, one thread sweeps expired entries and then trims arbitrary
+ *   entries down to ~90% capacity; concurrent writers simply skip caching meanwhile.
+ * <p>
+ * Counters (hits / misses / evictions) are exposed through {@link #stats()}.
+ */
+public class VerifiedTokenCache {
+
+    /** Cached verification result plus its absolute expiry (epoch millis). */
+    private record Entry(Jws<Claims> jws, long expiresAtMillis) { }
+
+    /**
+     * Point-in-time counters of the cache.
+     *
+     * @param size      current number of entries
+     * @param hits      lookups answered from the cache
+     * @param misses    lookups that required full verification
+     * @param evictions entries removed because they expired or the cache was full
+     */
+    public record Stats(int size, long hits, long misses, long evictions) { }
+
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final ReentrantLock sweepLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public VerifiedTokenCache(int maxEntries) {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive");
+        this.maxEntries = maxEntries;
+    }
+
+
+    /**
+     * Returns the cached verification result for a token digest, if still valid.
+     *
+     * @param key       token digest
+     * @param nowMillis current time (epoch millis)
+     * @return cached JWS, or null on miss/expiry
+     */
+    public Jws<Claims> get(Object key, long nowMillis) {
+        Entry e = entries.get(key);
+        if (e == null) {
+            misses.increment();
+            return null;
+        }
+        if (e.expiresAtMillis() <= nowMillis) {
+            if (entries.remove(key, e)) evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return e.jws();
+    }
+
+
+    /**
+     * Caches a freshly verified token until its expiry.
+     *
+     * @param key             token digest
+     * @param jws             verified token
+     * @param expiresAtMillis token "exp" (epoch millis)
+     * @param nowMillis       current time (epoch millis)
+     */
+    public void put(Object key, Jws<Claims> jws, long expiresAtMillis, long nowMillis) {
+        if (expiresAtMillis <= nowMillis) return;
+        if (entries.size() >= maxEntries && !sweep(nowMillis)) return;
+        entries.put(key, new Entry(jws, expiresAtMillis));
+    }
+
+
+    /** @return current counters */
+    public Stats stats() {
+        return new Stats(entries.size(), hits.sum(), misses.sum(), evictions.sum());
+    }
+
+
+    /**
+     * Frees capacity: first drops expired entries, then trims arbitrary ones.
+     *
+     * @return true if there is room for a new entry afterwards
+     */
+    private boolean sweep(long nowMillis) {
+        if (!sweepLock.tryLock()) return false;
+        try {
+            int target = maxEntries - Math.max(1, maxEntries / 10);
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                if (it.next().expiresAtMillis() <= nowMillis) {
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext() && entries.size() > target; ) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+            return entries.size() < maxEntries;
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+}
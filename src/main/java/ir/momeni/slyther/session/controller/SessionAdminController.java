@@ -0,0 +1,43 @@
+package ir.momeni.slyther.session.controller;
+
+import ir.momeni.slyther.common.api.ApiResponse;
+import ir.momeni.slyther.session.service.SessionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.OptionalInt;
+
+
+/**
+ * Admin view of any user's sessions.
+ * <p>
+ * Endpoints (ROLE_ADMIN):
+ * - GET /api/admin/users/{userId}/sessions: active sessions, newest first
+ * - DELETE /api/admin/users/{userId}/sessions: log the user out everywhere (sessions and
+ *   access tokens)
+ */
+@RestController
+@RequestMapping("/api/admin/users/{userId}/sessions")
+@PreAuthorize("hasRole('ADMIN')")
+@RequiredArgsConstructor
+public class SessionAdminController {
+
+    private final SessionService sessions;
+
+
+    @GetMapping
+    public List<SessionService.View> list(@PathVariable Long userId) {
+        return sessions.listActive(userId);
+    }
+
+
+    @DeleteMapping
+    public ResponseEntity<ApiResponse> revokeAll(@PathVariable Long userId) {
+        OptionalInt n = sessions.revokeAll(userId);
+        if (n.isEmpty()) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(new ApiResponse(true, n.getAsInt() + " session(s) revoked, all access tokens invalidated"));
+    }
+}
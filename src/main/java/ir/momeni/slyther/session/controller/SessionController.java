@@ -0,0 +1,62 @@
+package ir.momeni.slyther.session.controller;
+
+import ir.momeni.slyther.common.api.ApiResponse;
+import ir.momeni.slyther.security.TokenPrincipal;
+import ir.momeni.slyther.session.service.SessionService;
+import ir.momeni.slyther.user.entity.User;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.OptionalInt;
+
+
+/**
+ * The current user's sessions (signed-in devices).
+ * <p>
+ * Endpoints (authenticated):
+ * - GET /api/sessions: active sessions, newest first
+ * - DELETE /api/sessions/{id}: revoke one session (its refresh token)
+ * - DELETE /api/sessions: log out everywhere (all sessions + every access token issued so far,
+ *   including the one making this call)
+ */
+@RestController
+@RequestMapping("/api/sessions")
+@RequiredArgsConstructor
+public class SessionController {
+
+    private final SessionService sessions;
+
+
+    @GetMapping
+    public List<SessionService.View> list(Authentication auth) {
+        return sessions.listActive(userId(auth));
+    }
+
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse> revoke(@PathVariable Long id, Authentication auth) {
+        if (!sessions.revoke(userId(auth), id)) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(new ApiResponse(true, "session revoked"));
+    }
+
+
+    @DeleteMapping
+    public ResponseEntity<ApiResponse> revokeAll(Authentication auth) {
+        OptionalInt n = sessions.revokeAll(userId(auth));
+        if (n.isEmpty()) return ResponseEntity.notFound().build();
+        return ResponseEntity.ok(new ApiResponse(true, n.getAsInt() + " session(s) revoked, all access tokens invalidated"));
+    }
+
+
+    /** User id of the principal, from either authentication path of JwtAuthFilter. */
+    static Long userId(Authentication auth) {
+        Object p = auth != null ? auth.getPrincipal() : null;
+        if (p instanceof User u) return u.getId();
+        if (p instanceof TokenPrincipal t) return t.id();
+        throw new AccessDeniedException("No user principal");
+    }
+}
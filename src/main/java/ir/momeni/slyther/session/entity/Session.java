@@ -18,10 +18,13 @@ import java.time.Instant;
 @Entity @Table(name = "sessions", indexes = {
 
         // Unique index to ensure a given refresh token hash is stored only once
-        @Index(name="idx_session_refresh_hash", columnList = "refreshTokenHash", unique = true),
+        @Index(name="idx_session_refresh_hash", columnList = "refresh_token_hash", unique = true),
 
         // Index to speed up lookups by user
-        @Index(name="idx_session_user", columnList = "user_id")
+        @Index(name="idx_session_user", columnList = "user_id"),
+
+        // Active sessions of a user (device list, "log out everywhere")
+        @Index(name="idx_session_user_active", columnList = "user_id, revoked, expires_at")
 })
 @Getter @Setter @NoArgsConstructor @AllArgsConstructor @Builder
 public class Session extends BaseEntity {
@@ -32,9 +35,9 @@ public class Session extends BaseEntity {
     private User user;
 
 
-    /** Hash of the refresh token (store only hashes, never raw tokens). */
-    @Column(name = "refresh_token_hash",nullable = false, unique = true, length = 64)
-    private String refreshTokenHash;
+    /** Raw SHA-256 digest of the refresh token (store only hashes, never raw tokens). */
+    @Column(name = "refresh_token_hash", nullable = false, unique = true, length = 32, columnDefinition = "BINARY(32)")
+    private byte[] refreshTokenHash;
 
 
     /** Absolute expiration time for this session's refresh token. */
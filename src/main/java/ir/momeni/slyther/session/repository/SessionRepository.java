@@ -2,6 +2,12 @@ package ir.momeni.slyther.session.repository;
 
 import ir.momeni.slyther.session.entity.Session;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 
@@ -18,8 +24,76 @@ public interface SessionRepository extends JpaRepository<Session, Long> {
      * <p>
      * Note: Only hashes of refresh tokens should be stored; never persist raw tokens.
      *
-     * @param refreshTokenHash the (hashed) refresh token value
+     * @param refreshTokenHash 32-byte SHA-256 digest of the refresh token
      * @return an {@link Optional} containing the matching {@link Session}, if present
      */
-    Optional<Session> findByRefreshTokenHash(String refreshTokenHash);
+    Optional<Session> findByRefreshTokenHash(byte[] refreshTokenHash);
+
+    /**
+     * Loads a session together with its user and the user's roles (one statement).
+     *
+     * @param refreshTokenHash 32-byte SHA-256 digest of the refresh token
+     * @return the session with {@code user} and {@code user.roles} initialized
+     */
+    @Query("select s from Session s join fetch s.user u left join fetch u.roles where s.refreshTokenHash = :hash")
+    Optional<Session> findWithUserByRefreshTokenHash(@Param("hash") byte[] refreshTokenHash);
+
+    /**
+     * Revokes the session of a hash only if it is still active. The row lock taken by the
+     * UPDATE serializes concurrent attempts: exactly one of them sees a count of 1.
+     *
+     * @param refreshTokenHash 32-byte SHA-256 digest of the refresh token
+     * @param now              current time
+     * @return 1 if this call revoked an active session, otherwise 0
+     */
+    @Modifying
+    @Query("update Session s set s.revoked = true, s.updatedAt = :now "
+            + "where s.refreshTokenHash = :hash and s.revoked = false and s.expiresAt > :now")
+    int revokeIfActive(@Param("hash") byte[] refreshTokenHash, @Param("now") Instant now);
+
+    /**
+     * Revokes the session of a hash whatever its state (logout).
+     *
+     * @param refreshTokenHash 32-byte SHA-256 digest of the refresh token
+     * @param now              current time (bulk updates bypass {@code @UpdateTimestamp})
+     * @return number of sessions updated
+     */
+    @Modifying
+    @Query("update Session s set s.revoked = true, s.updatedAt = :now where s.refreshTokenHash = :hash and s.revoked = false")
+    int revoke(@Param("hash") byte[] refreshTokenHash, @Param("now") Instant now);
+
+    /**
+     * Active sessions of a user, newest first (range scan of idx_session_user_active).
+     *
+     * @param userId the user id
+     * @param now    current time
+     */
+    @Query("select s from Session s where s.user.id = :userId and s.revoked = false and s.expiresAt > :now "
+            + "order by s.createdAt desc")
+    List<Session> findActiveByUser(@Param("userId") Long userId, @Param("now") Instant now);
+
+    /**
+     * Revokes every active session of a user.
+     *
+     * @param userId the user id
+     * @param now    current time
+     * @return number of sessions revoked
+     */
+    @Modifying
+    @Query("update Session s set s.revoked = true, s.updatedAt = :now "
+            + "where s.user.id = :userId and s.revoked = false and s.expiresAt > :now")
+    int revokeAllByUser(@Param("userId") Long userId, @Param("now") Instant now);
+
+    /**
+     * Revokes one session, only if it belongs to the given user.
+     *
+     * @param id     the session id
+     * @param userId the owning user id
+     * @param now    current time
+     * @return 1 if revoked, 0 if not found, not owned or already revoked
+     */
+    @Modifying
+    @Query("update Session s set s.revoked = true, s.updatedAt = :now "
+            + "where s.id = :id and s.user.id = :userId and s.revoked = false")
+    int revokeByIdAndUser(@Param("id") Long id, @Param("userId") Long userId, @Param("now") Instant now);
 }
@@ -0,0 +1,145 @@
+package ir.momeni.slyther.session.service;
+
+import ir.momeni.slyther.common.db.SchedulerLock;
+import ir.momeni.slyther.config.AppProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+
+/**
+ * Deletes dead rows of {@code sessions} and {@code password_reset_tokens}, which otherwise
+ * grow by a row per login / reset request forever.
+ * <p>
+ * Dead:
+ * - sessions: expired, or revoked more than {@code keep-revoked} ago
+ * - reset tokens: expired or used
+ * <p>
+ * Rows are deleted in primary-key order, {@code chunk-size} ids per DELETE (each its own short
+ * transaction), pausing {@code pause} between chunks so locks stay short and replication and
+ * concurrent logins keep up. Runs on {@code app.security.reaper.cron}, on one node at a time
+ * ({@link SchedulerLock} "session-reaper").
+ * <p>
+ * A run can take minutes on a large backlog, so the cron trigger only hands it to a dedicated
+ * "session-reaper" thread: the shared scheduler keeps running the sync jobs (revocations,
+ * token epochs, user cache, rate limits) meanwhile. A trigger while a run is still going is skipped.
+ */
+@Slf4j
+@Component
+public class SessionReaper {
+
+    /** Rows deleted by one run. */
+    public record Result(long sessions, long resetTokens) { }
+
+    private static final String LOCK = "session-reaper";
+
+    private final JdbcTemplate jdbc;
+    private final SchedulerLock locks;
+    private final AppProperties.Security.Reaper cfg;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "session-reaper");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public SessionReaper(JdbcTemplate jdbc, SchedulerLock locks, AppProperties props) {
+        this.jdbc = jdbc;
+        this.locks = locks;
+        this.cfg = props.getSecurity().getReaper();
+    }
+
+
+    /** Scheduled entry point: starts a run on the reaper thread unless one is still going. */
+    @Scheduled(cron = "${app.security.reaper.cron:0 15 * * * *}")
+    public void run() {
+        if (!cfg.isEnabled() || !running.compareAndSet(false, true)) return;
+        try {
+            worker.execute(() -> {
+                try {
+                    reap();
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);     // shutting down
+        }
+    }
+
+
+    /** Stops a run in progress at its next pause (rows deleted so far stay deleted). */
+    @PreDestroy
+    void shutdown() {
+        worker.shutdownNow();
+    }
+
+
+    /** Purges when this node gets the leader lock. */
+    private void reap() {
+        if (!locks.tryLock(LOCK, cfg.getLockLease())) {
+            log.debug("Session reaper runs on another node");
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            Result r = purge();
+            log.info("Session reaper purged {} session(s) and {} reset token(s) in {} ms",
+                    r.sessions(), r.resetTokens(), (System.nanoTime() - start) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            locks.unlock(LOCK);
+        }
+    }
+
+
+    /**
+     * Deletes all dead rows now (chunked).
+     *
+     * @throws InterruptedException when interrupted during a pause (rows deleted so far stay deleted)
+     */
+    public Result purge() throws InterruptedException {
+        Instant now = Instant.now();
+        LocalDateTime nowUtc = LocalDateTime.ofInstant(now, ZoneOffset.UTC);
+        LocalDateTime revokedBefore = LocalDateTime.ofInstant(now.minus(cfg.getKeepRevoked()), ZoneOffset.UTC);
+        long sessions = purge("sessions", "expires_at < ? OR (revoked = ? AND updated_at < ?)",
+                nowUtc, true, revokedBefore);
+        long tokens = purge("password_reset_tokens", "expires_at < ? OR used = ?", nowUtc, true);
+        return new Result(sessions, tokens);
+    }
+
+
+    /** Keyset walk over the table's ids: select a chunk of dead ids, delete them by id, pause. */
+    private long purge(String table, String dead, Object... args) throws InterruptedException {
+        int chunk = cfg.getChunkSize();
+        String select = "SELECT id FROM " + table + " WHERE id > ? AND (" + dead + ") ORDER BY id LIMIT " + chunk;
+        long total = 0, lastId = 0;
+        while (true) {
+            Object[] selectArgs = new Object[args.length + 1];
+            selectArgs[0] = lastId;
+            System.arraycopy(args, 0, selectArgs, 1, args.length);
+            List<Long> ids = jdbc.queryForList(select, Long.class, selectArgs);
+            if (ids.isEmpty()) break;
+
+            String delete = "DELETE FROM " + table + " WHERE id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) + ")";
+            total += jdbc.update(delete, ids.toArray());
+            lastId = ids.get(ids.size() - 1);
+            if (ids.size() < chunk) break;
+            Thread.sleep(cfg.getPause().toMillis());
+        }
+        return total;
+    }
+}
@@ -1,10 +1,18 @@
 package ir.momeni.slyther.session.service;
 
 import ir.momeni.slyther.common.util.HashUtils;
+import ir.momeni.slyther.security.TokenEpochRegistry;
 import ir.momeni.slyther.session.entity.Session;
 import ir.momeni.slyther.session.repository.SessionRepository;
+import ir.momeni.slyther.user.repository.UserRepository;
+import ir.momeni.slyther.user.service.UserCache;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.OptionalInt;
 
 
 /**
@@ -12,15 +20,40 @@ import org.springframework.stereotype.Service;
  * <p>
  * Stores only the SHA-256 hash of refresh tokens (never the raw token) and
  * provides helpers to validate and revoke sessions based on a raw token value.
+ * <p>
+ * Per-user operations (device list, "log out everywhere") use the
+ * {@code (user_id, revoked, expires_at)} index; logging out everywhere also bumps the user's
+ * token epoch, so access tokens already issued stop working as well.
  */
 @Service
 @RequiredArgsConstructor
 public class SessionService {
 
 
+    /**
+     * An active session as shown to its user or an admin (no token material).
+     *
+     * @param id        session id (for revoking one device)
+     * @param createdAt login / last rotation time
+     * @param expiresAt refresh-token expiry
+     * @param userAgent client User-Agent at login
+     * @param ipAddress client IP at login
+     */
+    public record View(Long id, Instant createdAt, Instant expiresAt, String userAgent, String ipAddress) {
+
+        static View of(Session s) {
+            return new View(s.getId(), s.getCreatedAt(), s.getExpiresAt(), s.getUserAgent(), s.getIpAddress());
+        }
+    }
+
+
     /** Data-access repository for {@link Session} entities. */
     private final SessionRepository repo;
 
+    private final UserRepository users;
+    private final UserCache userCache;
+    private final TokenEpochRegistry epochs;
+
 
     /**
      * Persists a new {@link Session}.
@@ -34,40 +67,92 @@ public class SessionService {
 
 
     /**
-     * Validates that a raw refresh token corresponds to an existing, active session.
+     * Rotates a refresh token in one transaction: the old session is revoked and a new one
+     * for the same user and client is inserted.
      * <p>
      * Steps:
-     * 1) Hash the provided raw token using SHA-256.
-     * 2) Lookup the session by hash.
-     * 3) Ensure the session is active (not revoked and not expired).
+     * 1) Conditional UPDATE revoking the old session only if it is still active; a row count
+     *    of 0 means unknown, expired, revoked, or already rotated by a concurrent request.
+     * 2) One fetch-join SELECT for the session with its user and roles (needed for the new
+     *    access token, and usable after the transaction).
+     * 3) INSERT of the new session.
+     * Two concurrent refreshes with the same token cannot both succeed: the second UPDATE
+     * waits for the first one's row lock and then matches no row.
      *
      * @param rawRefreshToken the plain refresh token provided by the client
-     * @return the matching {@link Session} if valid and active
-     * @throws IllegalArgumentException if the token does not match any session
-     * @throws IllegalStateException if the session is found but expired or revoked
+     * @param newHash         SHA-256 digest of the replacement refresh token
+     * @param expiresAt       expiry of the replacement session
+     * @return the new session, with {@code user} and its roles loaded
+     * @throws IllegalStateException if the token is not an active session
      */
-    public Session validateActiveRawToken(String rawRefreshToken) {
-        String hash = HashUtils.sha256Hex(rawRefreshToken);
-        var s = repo.findByRefreshTokenHash(hash)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid refresh token"));
-        if (!s.isActive()) throw new IllegalStateException("Refresh token expired/revoked");
-        return s;
+    @Transactional
+    public Session rotate(String rawRefreshToken, byte[] newHash, Instant expiresAt) {
+        byte[] hash = HashUtils.sha256(rawRefreshToken);
+        if (repo.revokeIfActive(hash, Instant.now()) != 1) {
+            throw new IllegalStateException("Invalid, expired or revoked refresh token");
+        }
+        Session old = repo.findWithUserByRefreshTokenHash(hash).orElseThrow();
+        return repo.save(Session.builder()
+                .user(old.getUser())
+                .refreshTokenHash(newHash)
+                .expiresAt(expiresAt)
+                .userAgent(old.getUserAgent())
+                .ipAddress(old.getIpAddress())
+                .build());
     }
 
 
     /**
-     * Revokes a session identified by the raw refresh token.
-     * <p>
-     * Hashes the token, finds the session, marks it as revoked, and saves the change.
+     * Revokes a session identified by the raw refresh token (single UPDATE).
      * If no matching session is found, this is a no-op.
      *
      * @param rawRefreshToken the plain refresh token to revoke
      */
+    @Transactional
     public void revokeRawToken(String rawRefreshToken) {
-        String hash = HashUtils.sha256Hex(rawRefreshToken);
-        repo.findByRefreshTokenHash(hash).ifPresent(s -> {
-            s.setRevoked(true);
-            repo.save(s);
-        });
+        repo.revoke(HashUtils.sha256(rawRefreshToken), Instant.now());
+    }
+
+
+    /**
+     * @param userId the user id
+     * @return the user's active sessions, newest first
+     */
+    @Transactional(readOnly = true)
+    public List<View> listActive(Long userId) {
+        return repo.findActiveByUser(userId, Instant.now()).stream().map(View::of).toList();
+    }
+
+
+    /**
+     * Revokes one session of a user. Access tokens already issued for it stay valid until
+     * they expire; use {@link #revokeAll} to cut those off too.
+     *
+     * @return true if an active session of this user was revoked
+     */
+    @Transactional
+    public boolean revoke(Long userId, Long sessionId) {
+        return repo.revokeByIdAndUser(sessionId, userId, Instant.now()) == 1;
+    }
+
+
+    /**
+     * "Log out everywhere": revokes every session of the user and bumps the user's token
+     * epoch, which invalidates all access tokens issued so far (on every node within one
+     * epoch sync interval, on this one immediately after commit).
+     *
+     * @param userId the user id
+     * @return number of sessions revoked, or empty if the user does not exist
+     */
+    @Transactional
+    public OptionalInt revokeAll(Long userId) {
+        Instant now = Instant.now();
+        if (users.bumpTokenEpoch(userId, now) != 1) return OptionalInt.empty();
+        int revoked = repo.revokeAllByUser(userId, now);
+        UserRepository.TokenEpoch epoch = users.findTokenEpoch(userId).orElseThrow();
+        epochs.advance(userId, epoch.getTokenEpoch());
+        // Cached principals carry the old epoch (used when issuing new tokens)
+        userCache.evict(epoch.getUsername());
+        return OptionalInt.of(revoked);
     }
 }
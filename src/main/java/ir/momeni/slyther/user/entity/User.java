@@ -41,6 +41,15 @@ public class User extends BaseEntity implements UserDetails {
     private boolean enabled = true;
 
 
+    /**
+     * Access-token epoch, bumped by "log out everywhere". Tokens carry the epoch they were
+     * issued under ({@code tep} claim); tokens from an older epoch are rejected.
+     */
+    @Builder.Default
+    @Column(name = "token_epoch", nullable = false)
+    private long tokenEpoch = 0;
+
+
     /**
      * Roles assigned to the user (e.g., ADMIN, USER).
      * <p>
@@ -2,6 +2,13 @@ package ir.momeni.slyther.user.repository;
 
 import ir.momeni.slyther.user.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -13,6 +20,14 @@ import java.util.Optional;
  */
 public interface UserRepository extends JpaRepository<User, Long> {
 
+    /** Projection of a user's access-token epoch. */
+    interface TokenEpoch {
+        Long getId();
+        String getUsername();
+        long getTokenEpoch();
+        Instant getUpdatedAt();
+    }
+
 
     /**
      * Retrieves a user by their username.
@@ -46,4 +61,58 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return true if a user with that email exists, false otherwise
      */
     boolean existsByEmail(String email);
+
+
+    /**
+     * Replaces a user's password hash (single UPDATE, no entity load).
+     *
+     * @param username the user
+     * @param password the new encoded password
+     * @param now      current time, stored as updated_at so other nodes drop their cached copy
+     * @return number of updated rows (0 if the user does not exist)
+     */
+    @Transactional
+    @Modifying
+    @Query("update User u set u.password = :password, u.updatedAt = :now where u.username = :username")
+    int updatePassword(@Param("username") String username, @Param("password") String password, @Param("now") Instant now);
+
+
+    /**
+     * Usernames of users changed after a point in time (cross-node cache invalidation).
+     *
+     * @param since lower bound (exclusive) on updated_at
+     */
+    @Query("select u.username from User u where u.updatedAt > :since")
+    List<String> findUsernamesUpdatedAfter(@Param("since") Instant since);
+
+
+    /**
+     * Increments a user's access-token epoch (invalidating every access token issued so far).
+     *
+     * @param id  the user id
+     * @param now current time, stored as updated_at for the epoch sync between nodes
+     * @return number of updated rows
+     */
+    @Modifying
+    @Query("update User u set u.tokenEpoch = u.tokenEpoch + 1, u.updatedAt = :now where u.id = :id")
+    int bumpTokenEpoch(@Param("id") Long id, @Param("now") Instant now);
+
+
+    /**
+     * Loads the non-zero epochs of users updated after a point in time.
+     *
+     * @param since lower bound (exclusive) on updated_at
+     * @return id, username, epoch and updated_at of each such user
+     */
+    @Query("select u.id as id, u.username as username, u.tokenEpoch as tokenEpoch, u.updatedAt as updatedAt from User u "
+            + "where u.tokenEpoch > 0 and u.updatedAt > :since")
+    List<TokenEpoch> findTokenEpochsUpdatedAfter(@Param("since") Instant since);
+
+
+    /**
+     * @param id the user id
+     * @return the user's current access-token epoch, if the user exists
+     */
+    @Query("select u.id as id, u.username as username, u.tokenEpoch as tokenEpoch, u.updatedAt as updatedAt from User u where u.id = :id")
+    Optional<TokenEpoch> findTokenEpoch(@Param("id") Long id);
 }
@@ -0,0 +1,194 @@
+package ir.momeni.slyther.user.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import ir.momeni.slyther.config.AppProperties;
+import ir.momeni.slyther.user.entity.User;
+import ir.momeni.slyther.user.repository.UserRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+
+/**
+ * Size- and TTL-bounded in-process cache of {@link User} principals, keyed by username.
+ * <p>
+ * Sits in front of {@link UserRepository#findByUsername(String)} for the two hot callers:
+ * {@code UserService.loadUserByUsername} (login) and {@code JwtAuthFilter} (DB auth path).
+ * <p>
+ * Consistency:
+ * - Every code path that changes a user's password, roles or {@code enabled} flag must call
+ *   {@link #evict(String)}; inside a transaction the eviction is repeated after commit so a
+ *   concurrent reader cannot re-cache the pre-commit row.
+ * - Changes made on other nodes are picked up from {@code users.updated_at} every
+ *   {@code sync-interval} (with an overlap window), so a node serves a stale principal for at
+ *   most about that long, not the full TTL. Writers that bypass Hibernate must set updated_at.
+ * - Loads that raced with an invalidation are not cached.
+ * - Unknown usernames are never cached.
+ * <p>
+ * Configured under {@code app.security.user-cache.*}; when disabled every call goes to the DB.
+ * Counters are published as {@code cache.gets}, {@code cache.evictions} and {@code cache.size}
+ * with tag {@code cache=users}.
+ */
+@Component
+public class UserCache {
+
+    /** Cached principal plus its absolute expiry ({@link System#nanoTime()} based). */
+    private record Entry(User user, long expiresAtNanos) { }
+
+    /** Overlap for incremental sync, covering commit delays and clock skew between nodes. */
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(30);
+
+    private final UserRepository repo;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private Instant lastSync = Instant.now();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public UserCache(UserRepository repo, AppProperties props, MeterRegistry meters) {
+        var cfg = props.getSecurity().getUserCache();
+        this.repo = repo;
+        this.enabled = cfg.isEnabled() && cfg.getMaxEntries() > 0 && cfg.getTtlSeconds() > 0;
+        this.maxEntries = cfg.getMaxEntries();
+        this.ttlNanos = cfg.getTtlSeconds() * 1_000_000_000L;
+
+        FunctionCounter.builder("cache.gets", hits, LongAdder::sum).tags("cache", "users", "result", "hit")
+                .description("User lookups answered from the cache").register(meters);
+        FunctionCounter.builder("cache.gets", misses, LongAdder::sum).tags("cache", "users", "result", "miss")
+                .description("User lookups that went to the DB").register(meters);
+        FunctionCounter.builder("cache.evictions", evictions, LongAdder::sum).tags("cache", "users")
+                .description("Users removed by TTL, capacity, or invalidation").register(meters);
+        Gauge.builder("cache.size", entries, Map::size).tags("cache", "users")
+                .description("Users currently cached").register(meters);
+    }
+
+
+    /**
+     * Looks a user up by username, serving from the cache while the entry is fresh.
+     *
+     * @param username the username to look up
+     * @return the user, or empty if no such user exists
+     */
+    public Optional<User> findByUsername(String username) {
+        if (!enabled) return repo.findByUsername(username);
+
+        long now = System.nanoTime();
+        Entry e = entries.get(username);
+        if (e != null) {
+            if (e.expiresAtNanos() - now > 0) {
+                hits.increment();
+                return Optional.of(e.user());
+            }
+            if (entries.remove(username, e)) evictions.increment();
+        }
+        misses.increment();
+
+        long generation = invalidations.get();
+        Optional<User> loaded = repo.findByUsername(username);
+        loaded.ifPresent(u -> put(username, u, now, generation));
+        return loaded;
+    }
+
+
+    /**
+     * Invalidates the cached principal of a user (password, roles or enabled changed).
+     * When called inside a transaction, the entry is evicted again after commit.
+     *
+     * @param username the affected username
+     */
+    public void evict(String username) {
+        if (!enabled || username == null) return;
+        invalidate(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() { invalidate(username); }
+            });
+        }
+    }
+
+
+    /** Evicts users changed since the last sync, on any node. */
+    @Scheduled(initialDelayString = "${app.security.user-cache.sync-interval:PT5S}",
+            fixedDelayString = "${app.security.user-cache.sync-interval:PT5S}")
+    public synchronized void sync() {
+        Instant now = Instant.now();
+        if (enabled && !entries.isEmpty()) {
+            // The overlap also re-evicts entries loaded while a remote commit was in flight
+            for (String username : repo.findUsernamesUpdatedAfter(lastSync.minus(SYNC_OVERLAP))) {
+                if (entries.remove(username) != null) evictions.increment();
+            }
+        }
+        lastSync = now;
+    }
+
+
+    /** Drops every cached principal. */
+    public void clear() {
+        invalidations.incrementAndGet();
+        int n = entries.size();
+        entries.clear();
+        evictions.add(n);
+    }
+
+
+    private void invalidate(String username) {
+        invalidations.incrementAndGet();
+        if (entries.remove(username) != null) evictions.increment();
+    }
+
+
+    /** Caches a loaded user unless an invalidation happened while it was being loaded. */
+    private void put(String username, User user, long now, long generation) {
+        if (entries.size() >= maxEntries && !sweep(now)) return;
+        entries.put(username, new Entry(user, now + ttlNanos));
+        if (invalidations.get() != generation) entries.remove(username);
+    }
+
+
+    /**
+     * Frees capacity: drops expired entries, then trims arbitrary ones down to ~90% capacity.
+     *
+     * @return true if there is room for a new entry afterwards
+     */
+    private boolean sweep(long now) {
+        if (!sweepLock.tryLock()) return false;
+        try {
+            int target = maxEntries - Math.max(1, maxEntries / 10);
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+                if (it.next().expiresAtNanos() - now <= 0) {
+                    it.remove();
+                    evictions.increment();
+                }
+            }
+            for (Iterator<Entry> it = entries.values().iterator(); it.hasNext() && entries.size() > target; ) {
+                it.next();
+                it.remove();
+                evictions.increment();
+            }
+            return entries.size() < maxEntries;
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+}
@@ -1,25 +1,37 @@
 package ir.momeni.slyther.user.service;
 
+import ir.momeni.slyther.user.entity.User;
 import ir.momeni.slyther.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
+import java.time.Instant;
+
 
 /**
  * Service class responsible for user-related operations.
  * <p>
  * Implements {@link UserDetailsService} to integrate with Spring Security’s
  * authentication system. Handles user retrieval and password encoding.
+ * <p>
+ * Also implements {@link UserDetailsPasswordService}: after a successful login whose stored
+ * hash uses an older (weaker) bcrypt strength, Spring Security re-encodes the password and
+ * hands it to {@link #updatePassword}, so hashes follow the calibrated strength without resets.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
-public class UserService implements UserDetailsService {
+public class UserService implements UserDetailsService, UserDetailsPasswordService {
 
     /** Repository for accessing user data from the database. */
     private final UserRepository repo;
 
+    /** Cached username lookups in front of {@link #repo}. */
+    private final UserCache userCache;
+
     /** Password encoder used for securely hashing user passwords. */
     private final PasswordEncoder encoder;
 
@@ -33,7 +45,7 @@ public class UserService implements UserDetailsService {
      */
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        return repo.findByUsername(username)
+        return userCache.findByUsername(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found"));
     }
 
@@ -45,4 +57,21 @@ public class UserService implements UserDetailsService {
      * @return the encoded (hashed) password
      */
     public String encode(String raw) { return encoder.encode(raw); }
+
+
+    /**
+     * Stores an upgraded password hash after a successful login.
+     *
+     * @param user        the authenticated principal
+     * @param newPassword the re-encoded password
+     * @return the principal carrying the new hash
+     */
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        if (repo.updatePassword(user.getUsername(), newPassword, Instant.now()) == 0) return user;
+        userCache.evict(user.getUsername());
+        log.debug("Upgraded password hash of {}", user.getUsername());
+        if (user instanceof User u) u.setPassword(newPassword);
+        return user;
+    }
 }
@@ -0,0 +1,13 @@
+/* ---------- JWT_SIGNING_KEYS (shared ES256 key ring) ---------- */
+CREATE TABLE IF NOT EXISTS jwt_signing_keys (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  created_at DATETIME(6) NULL,
+  updated_at DATETIME(6) NULL,
+  kid VARCHAR(64) NOT NULL,
+  algorithm VARCHAR(16) NOT NULL,
+  public_key VARCHAR(512) NOT NULL,
+  private_key VARCHAR(512) NOT NULL,
+  activates_at DATETIME(6) NOT NULL,
+  UNIQUE KEY idx_jwk_kid (kid),
+  INDEX idx_jwk_activates_at (activates_at)
+) ENGINE=InnoDB;
@@ -0,0 +1,11 @@
+/* ---------- REVOKED_TOKENS (access-token denylist by jti) ---------- */
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  created_at DATETIME(6) NULL,
+  updated_at DATETIME(6) NULL,
+  jti VARCHAR(64) NOT NULL,
+  expires_at DATETIME(6) NOT NULL,
+  UNIQUE KEY idx_revoked_jti (jti),
+  INDEX idx_revoked_expires_at (expires_at),
+  INDEX idx_revoked_created_at (created_at)
+) ENGINE=InnoDB;
@@ -0,0 +1,117 @@
+/* ---------- Token hashes: hex VARCHAR(64) -> raw BINARY(32) ----------
+   Each table: add a BINARY(32) column, fill it with UNHEX(old), drop the old column
+   (and its unique index), rename the new one, recreate the unique index.
+   Every step is guarded, so a partially applied run can be repeated. */
+
+/* ---------- SESSIONS ---------- */
+SET @sql := (
+  SELECT IF(
+    EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='sessions'
+             AND COLUMN_NAME='refresh_token_hash' AND DATA_TYPE='varchar')
+    AND NOT EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='sessions' AND COLUMN_NAME='refresh_token_digest'),
+    'ALTER TABLE sessions ADD COLUMN refresh_token_digest BINARY(32) NULL',
+    'SELECT 1'
+  )
+);
+PREPARE s FROM @sql; EXECUTE s; DEALLOCATE PREPARE s;
+
+SET @sql := (
+  SELECT IF(
+    EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='sessions' AND COLUMN_NAME='refresh_token_digest'),
+    'UPDATE sessions SET refresh_token_digest = UNHEX(refresh_token_hash) WHERE refresh_token_digest IS NULL',
+    'SELECT 1'
+  )
+);
+PREPARE s FROM @sql; EXECUTE s; DEALLOCATE PREPARE s;
+
+SET @sql := (
+  SELECT IF(
+    EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.STATISTICS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='sessions' AND INDEX_NAME='idx_session_refresh_hash')
+    AND EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='sessions' AND COLUMN_NAME='refresh_token_digest'),
+    'ALTER TABLE sessions DROP INDEX idx_session_refresh_hash',
+    'SELECT 1'
+  )
+);
+PREPARE s FROM @sql; EXECUTE s; DEALLOCATE PREPARE s;
+
+SET @sql := (
+  SELECT IF(
+    EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='sessions' AND COLUMN_NAME='refresh_token_digest'),
+    'ALTER TABLE sessions DROP COLUMN refresh_token_hash, CHANGE COLUMN refresh_token_digest refresh_token_hash BINARY(32) NOT NULL',
+    'SELECT 1'
+  )
+);
+PREPARE s FROM @sql; EXECUTE s; DEALLOCATE PREPARE s;
+
+SET @sql := (
+  SELECT IF(
+    NOT EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.STATISTICS
+               WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='sessions' AND INDEX_NAME='idx_session_refresh_hash'),
+    'ALTER TABLE sessions ADD UNIQUE KEY idx_session_refresh_hash (refresh_token_hash)',
+    'SELECT 1'
+  )
+);
+PREPARE s FROM @sql; EXECUTE s; DEALLOCATE PREPARE s;
+
+
+/* ---------- PASSWORD_RESET_TOKENS ---------- */
+SET @sql := (
+  SELECT IF(
+    EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='password_reset_tokens'
+             AND COLUMN_NAME='token_hash' AND DATA_TYPE='varchar')
+    AND NOT EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='password_reset_tokens' AND COLUMN_NAME='token_digest'),
+    'ALTER TABLE password_reset_tokens ADD COLUMN token_digest BINARY(32) NULL',
+    'SELECT 1'
+  )
+);
+PREPARE s FROM @sql; EXECUTE s; DEALLOCATE PREPARE s;
+
+SET @sql := (
+  SELECT IF(
+    EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='password_reset_tokens' AND COLUMN_NAME='token_digest'),
+    'UPDATE password_reset_tokens SET token_digest = UNHEX(token_hash) WHERE token_digest IS NULL',
+    'SELECT 1'
+  )
+);
+PREPARE s FROM @sql; EXECUTE s; DEALLOCATE PREPARE s;
+
+SET @sql := (
+  SELECT IF(
+    EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.STATISTICS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='password_reset_tokens' AND INDEX_NAME='idx_prt_token_hash')
+    AND EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='password_reset_tokens' AND COLUMN_NAME='token_digest'),
+    'ALTER TABLE password_reset_tokens DROP INDEX idx_prt_token_hash',
+    'SELECT 1'
+  )
+);
+PREPARE s FROM @sql; EXECUTE s; DEALLOCATE PREPARE s;
+
+SET @sql := (
+  SELECT IF(
+    EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.COLUMNS
+           WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='password_reset_tokens' AND COLUMN_NAME='token_digest'),
+    'ALTER TABLE password_reset_tokens DROP COLUMN token_hash, CHANGE COLUMN token_digest token_hash BINARY(32) NOT NULL',
+    'SELECT 1'
+  )
+);
+PREPARE s FROM @sql; EXECUTE s; DEALLOCATE PREPARE s;
+
+SET @sql := (
+  SELECT IF(
+    NOT EXISTS(SELECT 1 FROM INFORMATION_SCHEMA.STATISTICS
+               WHERE TABLE_SCHEMA=DATABASE() AND TABLE_NAME='password_reset_tokens' AND INDEX_NAME='idx_prt_token_hash'),
+    'ALTER TABLE password_reset_tokens ADD UNIQUE KEY idx_prt_token_hash (token_hash)',
+    'SELECT 1'
+  )
+);
+PREPARE s FROM @sql; EXECUTE s; DEALLOCATE PREPARE s;
@@ -0,0 +1,10 @@
+/* ---------- RATE_LIMIT_COUNTERS (cluster-wide fixed-window counters) ----------
+   key_hash: 64-bit hash of (policy, client); window_start / expires_at: epoch millis */
+CREATE TABLE IF NOT EXISTS rate_limit_counters (
+  key_hash BIGINT NOT NULL,
+  window_start BIGINT NOT NULL,
+  expires_at BIGINT NOT NULL,
+  used INT NOT NULL,
+  PRIMARY KEY (key_hash, window_start),
+  INDEX idx_rlc_expires_at (expires_at)
+) ENGINE=InnoDB;
@@ -0,0 +1,51 @@
+package ir.momeni.slyther.audit.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+
+class AuditQueryServiceTest {
+
+    @Test
+    void cursorRoundTripsCreatedAtAndId() {
+        assertRoundTrip(Instant.parse("2025-06-01T12:34:56.789123Z"), 1L);
+        assertRoundTrip(Instant.parse("2025-06-01T12:34:56Z"), Long.MAX_VALUE);
+        assertRoundTrip(Instant.parse("1969-12-31T23:59:59.999999Z"), 42L);   // negative micros
+    }
+
+
+    @Test
+    void cursorIsOpaqueAndFixedLength() {
+        String cursor = AuditQueryService.encode(entry(Instant.parse("2025-06-01T00:00:00Z"), 7L));
+        assertEquals(22, cursor.length());
+        assertEquals(cursor, cursor.replaceAll("[^A-Za-z0-9_-]", ""));
+    }
+
+
+    @Test
+    void malformedCursorsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> AuditQueryService.decode("not a cursor!"));
+        assertThrows(IllegalArgumentException.class, () -> AuditQueryService.decode("AAAA"));
+        assertThrows(IllegalArgumentException.class, () -> AuditQueryService.decode(""));
+    }
+
+
+    private static void assertRoundTrip(Instant createdAt, long id) {
+        ByteBuffer key = AuditQueryService.decode(AuditQueryService.encode(entry(createdAt, id)));
+        assertEquals(LocalDateTime.ofInstant(createdAt, ZoneOffset.UTC), AuditQueryService.fromMicros(key.getLong()));
+        assertEquals(id, key.getLong());
+    }
+
+
+    private static AuditQueryService.Entry entry(Instant createdAt, long id) {
+        return new AuditQueryService.Entry(id, createdAt, "alice", "GET", "/api/users", "127.0.0.1",
+                "curl", 200, true, null, null, 120L);
+    }
+}
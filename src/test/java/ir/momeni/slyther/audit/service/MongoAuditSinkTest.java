@@ -0,0 +1,123 @@
+package ir.momeni.slyther.audit.service;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import ir.momeni.slyther.audit.entity.ActionLog;
+import ir.momeni.slyther.config.AppProperties;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+/** Runs against a real MongoDB (time-series needs 5.0+); skipped when Docker is not available. */
+@Testcontainers(disabledWithoutDocker = true)
+class MongoAuditSinkTest {
+
+    private static final String COLLECTION = "audit_test";
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongo;
+
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl());
+        mongo = new MongoTemplate(client, "slyther");
+    }
+
+
+    @AfterAll
+    static void disconnect() {
+        client.close();
+    }
+
+
+    @BeforeEach
+    void dropCollection() {
+        mongo.dropCollection(COLLECTION);
+    }
+
+
+    @Test
+    void createsATimeSeriesCollectionWithTtlAndIndexes() {
+        sink(Duration.ofDays(30)).init();
+
+        Document options = collectionOptions();
+        Document ts = options.get("timeseries", Document.class);
+        assertEquals("createdAt", ts.getString("timeField"));
+        assertEquals("meta", ts.getString("metaField"));
+        assertEquals("seconds", ts.getString("granularity"));
+        assertEquals(Duration.ofDays(30).toSeconds(), options.get("expireAfterSeconds", Number.class).longValue());
+
+        List<String> indexes = new ArrayList<>();
+        mongo.getCollection(COLLECTION).listIndexes().forEach(i -> indexes.add(i.getString("name")));
+        assertTrue(indexes.containsAll(List.of("idx_log_user_created", "idx_log_path_created")), indexes.toString());
+    }
+
+
+    @Test
+    void reappliesTheTtlToAnExistingCollection() {
+        sink(Duration.ofDays(30)).init();
+        sink(Duration.ofDays(7)).init();     // next start with a new expire-after: collMod
+
+        assertEquals(Duration.ofDays(7).toSeconds(), collectionOptions().get("expireAfterSeconds", Number.class).longValue());
+    }
+
+
+    @Test
+    void writesABatchInOneUnorderedBulkInsert() {
+        MongoAuditSink sink = sink(Duration.ofDays(30));    // not initialised: the first write creates the collection
+        Instant at = Instant.parse("2025-06-01T12:00:00Z");
+        List<AuditPipeline.AuditRecord> batch = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            batch.add(new AuditPipeline.AuditRecord(ActionLog.builder()
+                    .username(i % 2 == 0 ? "alice" : null).method("GET").path("/api/items/" + i)
+                    .status(200).durationMicros(100L + i).build(), at.plusMillis(i)));
+        }
+        sink.write(batch);
+
+        assertEquals(50, mongo.getCollection(COLLECTION).countDocuments());
+        assertTrue(collectionOptions().containsKey("timeseries"));
+
+        Document first = mongo.getCollection(COLLECTION).find(new Document("meta.path", "/api/items/0")).first();
+        assertEquals("alice", first.get("meta", Document.class).getString("username"));
+        assertEquals(100L, first.get("durationMicros", Number.class).longValue());
+        Document anonymous = mongo.getCollection(COLLECTION).find(new Document("meta.path", "/api/items/1")).first();
+        assertFalse(anonymous.get("meta", Document.class).containsKey("username"));   // nulls are omitted
+        assertFalse(anonymous.containsKey("errorMessage"));
+    }
+
+
+    private static MongoAuditSink sink(Duration expireAfter) {
+        AppProperties props = new AppProperties();
+        props.getAudit().setSink("mongo");
+        props.getAudit().getMongo().setCollection(COLLECTION);
+        props.getAudit().getMongo().setExpireAfter(expireAfter);
+        return new MongoAuditSink(mongo, props);
+    }
+
+
+    private static Document collectionOptions() {
+        Document info = mongo.getDb().listCollections().filter(new Document("name", COLLECTION)).first();
+        assertTrue(info != null, "collection " + COLLECTION + " missing");
+        return info.get("options", Document.class);
+    }
+}
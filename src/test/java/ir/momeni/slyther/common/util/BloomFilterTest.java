@@ -0,0 +1,50 @@
+package ir.momeni.slyther.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class BloomFilterTest {
+
+    private static final int N = 20_000;
+
+
+    @Test
+    void addedValuesAreAlwaysFound() {
+        BloomFilter filter = new BloomFilter(N, 0.001);
+        String[] values = new String[N];
+        for (int i = 0; i < N; i++) filter.put(values[i] = UUID.randomUUID().toString());
+        for (String v : values) assertTrue(filter.mightContain(v), v);
+    }
+
+
+    @Test
+    void emptyFilterContainsNothing() {
+        assertFalse(new BloomFilter(N, 0.01).mightContain("jti"));
+    }
+
+
+    @Test
+    void falsePositiveRateStaysNearTheTargetAtExpectedSize() {
+        assertFalsePositiveRate(0.01);
+        assertFalsePositiveRate(0.001);
+    }
+
+
+    /** Fills the filter to its expected size and probes values never added. */
+    private static void assertFalsePositiveRate(double target) {
+        BloomFilter filter = new BloomFilter(N, target);
+        for (int i = 0; i < N; i++) filter.put("added-" + i);
+
+        int probes = 200_000, hits = 0;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("absent-" + i)) hits++;
+        }
+        double rate = (double) hits / probes;
+        assertTrue(rate < target * 1.5, "false-positive rate " + rate + " for target " + target);
+    }
+}
@@ -0,0 +1,102 @@
+package ir.momeni.slyther.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class LatencyHistogramTest {
+
+    private static final long CAP = (1L << 36) - 1;
+
+
+    @Test
+    void valuesBelow32HaveOneBucketEach() {
+        for (int v = 0; v < 32; v++) {
+            assertEquals(v, LatencyHistogram.index(v));
+            assertEquals(v, LatencyHistogram.upperBound(v));
+        }
+    }
+
+
+    @Test
+    void bucketsWidenAt32And64() {
+        // [32, 64): width 2
+        assertEquals(32, LatencyHistogram.index(32));
+        assertEquals(32, LatencyHistogram.index(33));
+        assertEquals(33, LatencyHistogram.index(34));
+        assertEquals(33, LatencyHistogram.upperBound(32));
+        assertEquals(47, LatencyHistogram.index(63));
+        assertEquals(63, LatencyHistogram.upperBound(47));
+
+        // [64, 128): width 4
+        assertEquals(48, LatencyHistogram.index(64));
+        assertEquals(48, LatencyHistogram.index(67));
+        assertEquals(49, LatencyHistogram.index(68));
+        assertEquals(67, LatencyHistogram.upperBound(48));
+    }
+
+
+    @Test
+    void lastBucketEndsAtTheCap() {
+        assertEquals(528, LatencyHistogram.BUCKETS);
+        assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.index(CAP));
+        assertEquals(CAP, LatencyHistogram.upperBound(LatencyHistogram.BUCKETS - 1));
+
+        LatencyHistogram h = new LatencyHistogram();
+        h.record(1L << 36);
+        h.record(Long.MAX_VALUE);
+        h.record(-5);
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(2, s.counts()[LatencyHistogram.BUCKETS - 1]);
+        assertEquals(1, s.counts()[0]);
+        assertEquals(CAP, s.max());
+    }
+
+
+    @Test
+    void bucketsAreContiguous() {
+        for (int i = 0; i < LatencyHistogram.BUCKETS - 1; i++) {
+            long upper = LatencyHistogram.upperBound(i);
+            assertEquals(i, LatencyHistogram.index(upper));
+            assertEquals(i + 1, LatencyHistogram.index(upper + 1));
+        }
+    }
+
+
+    @Test
+    void percentilesAreWithinOneBucket() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int v = 1; v <= 1000; v++) h.record(v);
+        LatencyHistogram.Snapshot s = h.snapshot();
+        assertEquals(1000, s.count());
+        assertEquals(500, s.mean());
+        assertBetween(500, 500 + 500 / 16, s.percentile(0.5));
+        assertBetween(990, 990 + 990 / 16, s.percentile(0.99));
+        assertEquals(1000, s.percentile(1.0));
+        assertEquals(0, LatencyHistogram.Snapshot.empty().percentile(0.99));
+    }
+
+
+    @Test
+    void addToMatchesMerge() {
+        LatencyHistogram a = new LatencyHistogram(), b = new LatencyHistogram();
+        for (int v = 0; v < 5000; v += 7) a.record(v);
+        for (int v = 0; v < 90_000; v += 131) b.record(v);
+
+        long[] buckets = new long[LatencyHistogram.BUCKETS];
+        long count = a.addTo(buckets) + b.addTo(buckets);
+        LatencyHistogram.Snapshot merged = a.snapshot().merge(b.snapshot());
+        assertArrayEquals(merged.counts(), buckets);
+        assertEquals(merged.count(), count);
+        assertEquals(merged.sum(), a.sum() + b.sum());
+        assertEquals(merged.max(), Math.max(a.max(), b.max()));
+    }
+
+
+    private static void assertBetween(long low, long high, long actual) {
+        assertTrue(actual >= low && actual <= high, actual + " not in [" + low + ", " + high + "]");
+    }
+}
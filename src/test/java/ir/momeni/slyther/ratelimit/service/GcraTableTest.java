@@ -0,0 +1,75 @@
+package ir.momeni.slyther.ratelimit.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class GcraTableTest {
+
+    /** Long enough that the few milliseconds a test takes never free a cell. */
+    private static final long EMISSION = 60_000;
+
+    private static final long KEY = 0x9E3779B97F4A7C15L;
+
+
+    @Test
+    void admitsExactlyBurstRequestsThenRejects() {
+        GcraTable table = new GcraTable(1024);
+        int burst = 3;
+        long tolerance = EMISSION * (burst - 1);
+
+        for (int i = 0; i < burst; i++) assertEquals(0, table.acquire(KEY, EMISSION, tolerance), "request " + i);
+
+        // The next cell is one emission interval away
+        long wait = table.acquire(KEY, EMISSION, tolerance);
+        assertTrue(wait > EMISSION - 1_000 && wait <= EMISSION, "wait " + wait);
+    }
+
+
+    @Test
+    void zeroToleranceAllowsOneRequestPerEmission() {
+        GcraTable table = new GcraTable(1024);
+        assertEquals(0, table.acquire(KEY, EMISSION, 0));
+        assertTrue(table.acquire(KEY, EMISSION, 0) > 0);
+    }
+
+
+    @Test
+    void rejectedRequestsDoNotConsumeCells() {
+        GcraTable table = new GcraTable(1024);
+        long tolerance = EMISSION;   // burst of 2
+        table.acquire(KEY, EMISSION, tolerance);
+        table.acquire(KEY, EMISSION, tolerance);
+        long first = table.acquire(KEY, EMISSION, tolerance);
+        long second = table.acquire(KEY, EMISSION, tolerance);
+        assertTrue(first > 0 && second > 0);
+        assertTrue(second <= first, "rejections must not push the TAT further out");
+    }
+
+
+    @Test
+    void keysAreLimitedIndependently() {
+        GcraTable table = new GcraTable(1024);
+        assertEquals(0, table.acquire(KEY, EMISSION, 0));
+        assertEquals(0, table.acquire(KEY * 31, EMISSION, 0));
+        assertEquals(2, table.trackedKeys());
+    }
+
+
+    @Test
+    void fullProbeWindowEvictsTheKeyClosestToIdle() {
+        GcraTable table = new GcraTable(GcraTable.PROBE);
+        assertEquals(GcraTable.PROBE, table.capacity());
+        for (int i = 1; i <= GcraTable.PROBE + 1; i++) {
+            // Same low bits (same start slot); distinct fingerprints in the high bits
+            assertEquals(0, table.acquire((long) i << 48, EMISSION * i, 0));
+        }
+        assertEquals(1, table.evictions());
+        assertEquals(GcraTable.PROBE, table.trackedKeys());
+
+        // The evicted key (lowest TAT) starts over and conforms again
+        assertEquals(0, table.acquire(1L << 48, EMISSION, 0));
+    }
+}